@@ -0,0 +1,236 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Computer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import jenkins.util.SystemProperties;
+
+/**
+ * Per-agent values remembered by a monitor between two monitoring cycles, keyed by computer name.
+ *
+ * <p>Unlike {@link hudson.node_monitors.AbstractNodeMonitorDescriptor#get(Computer)}, reading from this cache never
+ * schedules a new probe, so it can be used to re-evaluate the fleet without any remote call.
+ *
+ * <p>Entries are removed when their node is deleted, see {@link AgentStateCleanup}. As a backstop for agents that
+ * disappear without notice, entries not read nor written for {@link #TTL_MILLIS} expire, and the least recently used
+ * entries are evicted when a cache holds more than {@link #MAX_ENTRIES}.
+ */
+final class AgentCache<V> {
+
+    static final int MAX_ENTRIES = SystemProperties.getInteger(AgentCache.class.getName() + ".maxEntries", 50_000);
+
+    static final long TTL_MILLIS =
+            TimeUnit.HOURS.toMillis(SystemProperties.getLong(AgentCache.class.getName() + ".ttlHours", 24L));
+
+    /**
+     * All the caches, by name.
+     */
+    private static final Map<AgentCache<?>, String> CACHES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final int maxEntries;
+
+    private final long ttlMillis;
+
+    private final LongSupplier clock;
+
+    /**
+     * @param name Identifies the cache in {@link #sizes()}.
+     */
+    AgentCache(String name) {
+        this(name, MAX_ENTRIES, TTL_MILLIS, System::currentTimeMillis);
+    }
+
+    AgentCache(String name, int maxEntries, long ttlMillis, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        CACHES.put(this, name);
+    }
+
+    @CheckForNull
+    V get(@NonNull Computer c) {
+        Entry<V> entry = entries.get(c.getName());
+        if (entry == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (now - entry.touched > ttlMillis) {
+            entries.remove(c.getName(), entry);
+            return null;
+        }
+        entry.touched = now;
+        return entry.value;
+    }
+
+    /**
+     * @return The previous value, if any.
+     */
+    @CheckForNull
+    V put(@NonNull Computer c, @NonNull V value) {
+        long now = clock.getAsLong();
+        Entry<V> previous = entries.put(c.getName(), new Entry<>(value, now));
+        bound();
+        return previous == null || now - previous.touched > ttlMillis ? null : previous.value;
+    }
+
+    @NonNull
+    V computeIfAbsent(@NonNull Computer c, @NonNull Supplier<V> value) {
+        long now = clock.getAsLong();
+        Entry<V> entry = entries.compute(
+                c.getName(),
+                (name, e) -> e == null || now - e.touched > ttlMillis ? new Entry<>(value.get(), now) : e);
+        entry.touched = now;
+        bound();
+        return entry.value;
+    }
+
+    void remove(@NonNull String name) {
+        entries.remove(name);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * The names of the computers with an entry, sorted.
+     */
+    List<String> names() {
+        List<String> names = new ArrayList<>(entries.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Removes the expired entries.
+     */
+    void expire() {
+        long now = clock.getAsLong();
+        entries.values().removeIf(e -> now - e.touched > ttlMillis);
+    }
+
+    /**
+     * Evicts the least recently used entries once the cache is full, a tenth of the cache at a time so that the cost
+     * of sorting the entries is amortized.
+     */
+    private void bound() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        synchronized (this) {
+            int excess = entries.size() - maxEntries;
+            if (excess <= 0) {
+                return;
+            }
+            // entries keep being touched by other threads, so sort a snapshot of their access times
+            List<Touched<V>> lru = new ArrayList<>(entries.size());
+            entries.forEach((name, entry) -> lru.add(new Touched<>(name, entry)));
+            lru.sort(Comparator.comparingLong(t -> t.touched));
+            int evict = Math.min(lru.size(), excess + maxEntries / 10);
+            for (int i = 0; i < evict; i++) {
+                entries.remove(lru.get(i).name, lru.get(i).entry);
+            }
+        }
+    }
+
+    /**
+     * Removes the entries of the given computer from all the caches.
+     */
+    static void removeAll(@NonNull String name) {
+        for (AgentCache<?> cache : caches()) {
+            cache.remove(name);
+        }
+    }
+
+    /**
+     * Removes the expired entries of all the caches.
+     */
+    static void expireAll() {
+        for (AgentCache<?> cache : caches()) {
+            cache.expire();
+        }
+    }
+
+    /**
+     * The number of entries of each cache, by name.
+     */
+    static Map<String, Integer> sizes() {
+        Map<String, Integer> sizes = new TreeMap<>();
+        synchronized (CACHES) {
+            CACHES.forEach((cache, name) -> sizes.merge(name, cache.size(), Integer::sum));
+        }
+        return sizes;
+    }
+
+    private static List<AgentCache<?>> caches() {
+        synchronized (CACHES) {
+            return new ArrayList<>(CACHES.keySet());
+        }
+    }
+
+    /**
+     * An entry and its access time when the cache was bounded.
+     */
+    private static final class Touched<V> {
+
+        private final String name;
+
+        private final Entry<V> entry;
+
+        private final long touched;
+
+        Touched(String name, Entry<V> entry) {
+            this.name = name;
+            this.entry = entry;
+            this.touched = entry.touched;
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+
+        private volatile long touched;
+
+        Entry(V value, long touched) {
+            this.value = value;
+            this.touched = touched;
+        }
+    }
+}
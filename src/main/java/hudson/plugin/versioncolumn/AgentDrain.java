@@ -0,0 +1,341 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.Run;
+import hudson.model.queue.CauseOfBlockage;
+import hudson.model.queue.QueueTaskDispatcher;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Agents drained by a version monitor: they stay online so that their running builds can finish, including the
+ * parts of running Pipelines that have yet to be scheduled, but they do not take any new build.
+ *
+ * <p>Draining is decided by the monitoring cycles, and the state of the whole fleet is held in one map per monitor,
+ * so that the {@link Dispatcher} consulted by the queue only pays a lookup per agent.
+ *
+ * <p>Unlike the versions cached by the monitors, a drain does not expire: an agent stays drained until its version is
+ * found compatible, or its node is deleted. The drains are saved in {@code versioncolumn/drained-<monitor>.properties}
+ * so that a restart of the controller does not schedule builds on incompatible agents before their first probe.
+ */
+public final class AgentDrain {
+
+    private static final Logger LOGGER = Logger.getLogger(AgentDrain.class.getName());
+
+    private static final Map<String, AgentDrain> DRAINS = new ConcurrentHashMap<>();
+
+    private final String monitor;
+
+    /**
+     * When each drained agent was drained, by computer name.
+     */
+    private final Map<String, Long> drained = new ConcurrentSkipListMap<>();
+
+    private final LongSupplier clock;
+
+    /**
+     * Where the drains are saved, {@code null} if they are not.
+     */
+    @CheckForNull
+    private final Path file;
+
+    /**
+     * Whether the drains changed since they were last saved.
+     */
+    private volatile boolean dirty;
+
+    private AgentDrain(String monitor) {
+        this(monitor, System::currentTimeMillis, defaultFile(monitor));
+    }
+
+    AgentDrain(String monitor, LongSupplier clock) {
+        this(monitor, clock, null);
+    }
+
+    AgentDrain(String monitor, LongSupplier clock, @CheckForNull Path file) {
+        this.monitor = monitor;
+        this.clock = clock;
+        this.file = file;
+        load();
+    }
+
+    @CheckForNull
+    private static Path defaultFile(String monitor) {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins == null) {
+            return null;
+        }
+        return new File(new File(jenkins.getRootDir(), "versioncolumn"), "drained-" + monitor + ".properties").toPath();
+    }
+
+    /**
+     * The agents drained by the given monitor, as named in the {@link MonitoringEvents}.
+     */
+    static AgentDrain of(String monitor) {
+        return DRAINS.computeIfAbsent(monitor, AgentDrain::new);
+    }
+
+    /**
+     * The agents drained by each monitor, by monitor.
+     */
+    static Map<String, AgentDrain> all() {
+        return new TreeMap<>(DRAINS);
+    }
+
+    /**
+     * Stops scheduling new builds on the given computer. Draining an agent already drained keeps the time it was
+     * first drained, so that the builds started in between are still let through.
+     *
+     * @return Whether the computer was not already drained.
+     */
+    boolean drain(@NonNull Computer c) {
+        if (drained.putIfAbsent(c.getName(), clock.getAsLong()) != null) {
+            return false;
+        }
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Schedules new builds on the given computer again.
+     *
+     * @return Whether the computer was drained.
+     */
+    boolean release(@NonNull Computer c) {
+        return remove(c.getName());
+    }
+
+    private boolean remove(String name) {
+        if (drained.remove(name) == null) {
+            return false;
+        }
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Forgets the given node in every monitor, when it is deleted or renamed.
+     */
+    static void removeAll(@NonNull String name) {
+        for (AgentDrain drain : DRAINS.values()) {
+            if (drain.remove(name)) {
+                drain.save();
+            }
+        }
+    }
+
+    /**
+     * Forgets the nodes that no longer exist, for example nodes deleted while the controller was down.
+     */
+    static void removeMissing() {
+        Jenkins jenkins = Jenkins.get();
+        for (AgentDrain drain : DRAINS.values()) {
+            drain.drained.keySet().removeIf(name -> {
+                if (name.isEmpty() || jenkins.getNode(name) != null) {
+                    return false;
+                }
+                drain.dirty = true;
+                return true;
+            });
+            drain.save();
+        }
+    }
+
+    boolean isDrained(@NonNull Computer c) {
+        return drainedSince(c) != null;
+    }
+
+    /**
+     * When the given computer was drained.
+     *
+     * @return {@code null} if the computer is not drained.
+     */
+    @CheckForNull
+    Long drainedSince(@NonNull Computer c) {
+        return drained.isEmpty() ? null : drained.get(c.getName());
+    }
+
+    /**
+     * Whether the given task may run on the given computer: new builds may not, the tasks of builds started before
+     * the computer was drained may.
+     */
+    boolean admits(@NonNull Computer c, @NonNull Queue.Task task) {
+        Long since = drainedSince(c);
+        if (since == null) {
+            return true;
+        }
+        // such as a node block of a running Pipeline
+        return task.getOwnerExecutable() instanceof Run<?, ?> run && run.getStartTimeInMillis() < since;
+    }
+
+    public String getMonitor() {
+        return monitor;
+    }
+
+    public int getSize() {
+        return drained.size();
+    }
+
+    /**
+     * The names of the drained computers, sorted.
+     */
+    public Iterable<String> getNames() {
+        return drained.keySet();
+    }
+
+    JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        JSONArray agents = new JSONArray();
+        for (String name : drained.keySet()) {
+            agents.add(name);
+        }
+        json.put("count", agents.size());
+        json.put("agents", agents);
+        return json;
+    }
+
+    /**
+     * Saves the drains if they changed since they were last saved.
+     */
+    synchronized void save() {
+        if (file == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        Properties properties = new Properties();
+        drained.forEach((name, since) -> properties.setProperty(name, Long.toString(since)));
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(tmp)) {
+                    properties.store(out, null);
+                }
+                try {
+                    Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            LOGGER.log(Level.WARNING, "Failed to save the agents drained by " + monitor + " to " + file, e);
+        }
+    }
+
+    private void load() {
+        if (file == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the agents drained by " + monitor + " from " + file, e);
+            return;
+        }
+        for (String name : properties.stringPropertyNames()) {
+            try {
+                drained.put(name, Long.parseLong(properties.getProperty(name)));
+            } catch (NumberFormatException e) {
+                LOGGER.fine(() -> "Ignoring the drain of " + name + " in " + file);
+            }
+        }
+    }
+
+    /**
+     * How a version monitor takes an incompatible agent out of rotation.
+     */
+    public enum Enforcement {
+        /** Marks the agent temporarily offline. */
+        OFFLINE(Messages.AgentDrain_OFFLINE()),
+        /** Keeps the agent online, but refuses new builds until the running ones are over. */
+        DRAIN(Messages.AgentDrain_DRAIN());
+
+        private final String description;
+
+        Enforcement(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * Keeps new builds off the drained agents, while letting through the tasks of the builds that were already
+     * running when the agent was drained.
+     */
+    @Extension
+    public static class Dispatcher extends QueueTaskDispatcher {
+
+        @CheckForNull
+        @Override
+        public CauseOfBlockage canTake(Node node, Queue.BuildableItem item) {
+            if (DRAINS.isEmpty()) {
+                return null;
+            }
+            Computer c = node.toComputer();
+            if (c == null) {
+                return null;
+            }
+            for (AgentDrain drain : DRAINS.values()) {
+                if (!drain.admits(c, item.task)) {
+                    return CauseOfBlockage.fromMessage(Messages._AgentDrain_Blocked(node.getDisplayName()));
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Computer;
+import hudson.slaves.OfflineCause;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+
+/**
+ * Brings back online, in one pass, all the agents held offline by the version monitors whose cached version is
+ * now acceptable, for example after the comparison mode was relaxed or the controller was fixed.
+ *
+ * <p>Agents are checked in parallel against the versions collected during the last cycles, no agent is probed. An
+ * agent is only released if the other version monitor would not take it offline.
+ */
+final class AgentRelease {
+
+    private static final Logger LOGGER = Logger.getLogger(AgentRelease.class.getName());
+
+    private final List<String> released = new ArrayList<>();
+
+    private final List<String> held = new ArrayList<>();
+
+    private final List<String> unknown = new ArrayList<>();
+
+    private AgentRelease() {}
+
+    @NonNull
+    static AgentRelease run() {
+        Jenkins j = Jenkins.get();
+        return run(
+                j.getComputers(),
+                j.getDescriptorByType(JVMVersionMonitor.JvmVersionDescriptor.class),
+                j.getDescriptorByType(VersionMonitor.DescriptorImpl.class));
+    }
+
+    @NonNull
+    static AgentRelease run(
+            Computer[] computers,
+            JVMVersionMonitor.JvmVersionDescriptor jvm,
+            VersionMonitor.DescriptorImpl remoting) {
+        Map<Computer, Outcome> outcomes = new ConcurrentHashMap<>();
+        Arrays.stream(computers).parallel().forEach(c -> {
+            if (!c.isOffline()) {
+                return;
+            }
+            OfflineCause cause = c.getOfflineCause();
+            if (cause instanceof JVMVersionMonitor.JVMMismatchCause) {
+                outcomes.put(c, outcome(jvm.isReleasable(c), remoting.isReleasable(c)));
+            } else if (cause instanceof VersionMonitor.RemotingVersionMismatchCause) {
+                outcomes.put(c, outcome(remoting.isReleasable(c), jvm.isReleasable(c)));
+            }
+        });
+        AgentRelease release = new AgentRelease();
+        outcomes.forEach((c, outcome) -> {
+            switch (outcome) {
+                case RELEASED -> {
+                    if (c.getOfflineCause() instanceof JVMVersionMonitor.JVMMismatchCause) {
+                        jvm.release(c);
+                    } else {
+                        remoting.release(c);
+                    }
+                    release.released.add(c.getName());
+                }
+                case HELD -> release.held.add(c.getName());
+                default -> release.unknown.add(c.getName());
+            }
+        });
+        Collections.sort(release.released);
+        Collections.sort(release.held);
+        Collections.sort(release.unknown);
+        LOGGER.info(() -> "Released " + release.released.size() + " agents held offline by the version monitors, "
+                + release.held.size() + " are still incompatible and the version of " + release.unknown.size()
+                + " is unknown");
+        return release;
+    }
+
+    /**
+     * @param holding The verdict of the monitor holding the agent offline.
+     * @param other The verdict of the other monitor.
+     */
+    private static Outcome outcome(Boolean holding, Boolean other) {
+        if (holding == null) {
+            return Outcome.UNKNOWN;
+        }
+        return holding && !Boolean.FALSE.equals(other) ? Outcome.RELEASED : Outcome.HELD;
+    }
+
+    /**
+     * Agents brought back online.
+     */
+    List<String> getReleased() {
+        return released;
+    }
+
+    /**
+     * Agents still incompatible.
+     */
+    List<String> getHeld() {
+        return held;
+    }
+
+    /**
+     * Agents whose version is not known, left offline until their next probe.
+     */
+    List<String> getUnknown() {
+        return unknown;
+    }
+
+    JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        json.put("released", released);
+        json.put("held", held);
+        json.put("unknown", unknown);
+        return json;
+    }
+
+    private enum Outcome {
+        RELEASED,
+        HELD,
+        UNKNOWN
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.model.Label;
+import hudson.model.Node;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+
+/**
+ * Probes the JVM and remoting versions of selected agents on demand, for example to validate a rolling agent upgrade
+ * without waiting for the next monitoring cycle.
+ *
+ * <p>Both versions are collected in a single round trip per agent, all agents are probed concurrently, and results
+ * are reported as they are collected, in the order the agents were given. The monitors apply the results exactly as
+ * if they came from a cycle.
+ */
+final class AgentReprobe {
+
+    static final long DEFAULT_TIMEOUT_SECONDS = 30;
+
+    static final String MONITOR = "reprobe";
+
+    private AgentReprobe() {}
+
+    /**
+     * Selects the computers of the given nodes and of the nodes matching the given label expression.
+     *
+     * @throws IllegalArgumentException If a node does not exist or the label expression is invalid.
+     */
+    @NonNull
+    static Set<Computer> select(@CheckForNull Collection<String> names, @CheckForNull String labelExpression) {
+        Jenkins j = Jenkins.get();
+        Set<Computer> computers = new LinkedHashSet<>();
+        if (names != null) {
+            for (String name : names) {
+                Computer c = j.getComputer(name.trim());
+                if (c == null) {
+                    throw new IllegalArgumentException("No such node " + name);
+                }
+                computers.add(c);
+            }
+        }
+        labelExpression = Util.fixEmptyAndTrim(labelExpression);
+        if (labelExpression != null) {
+            Label label = j.getLabel(labelExpression);
+            if (label == null) {
+                throw new IllegalArgumentException("Invalid label expression " + labelExpression);
+            }
+            for (Node node : label.getNodes()) {
+                Computer c = node.toComputer();
+                if (c != null) {
+                    computers.add(c);
+                }
+            }
+        }
+        return computers;
+    }
+
+    /**
+     * Probes the given computers, and reports the result of each of them as soon as it is known.
+     */
+    static void run(@NonNull Collection<Computer> computers, long timeoutMillis, @NonNull Consumer<Result> listener)
+            throws InterruptedException {
+        Jenkins j = Jenkins.get();
+        JVMVersionMonitor.JvmVersionDescriptor jvm =
+                j.getDescriptorByType(JVMVersionMonitor.JvmVersionDescriptor.class);
+        VersionMonitor.DescriptorImpl remoting = j.getDescriptorByType(VersionMonitor.DescriptorImpl.class);
+        Set<Computer> pending = new HashSet<>(computers);
+        VersionProbes.probe(
+                MONITOR,
+                computers,
+                c -> new VersionsCallable(
+                        RuntimeProfileMonitor.needsProfile(c), SharedRegistry.get().needsIdentity(c)),
+                timeoutMillis,
+                (c, versions, nanos) -> {
+                    pending.remove(c);
+                    SharedVersionProbe.get().record(c, versions);
+                    jvm.apply(c, versions.getJvm());
+                    remoting.apply(c, versions.getRemoting());
+                    listener.accept(new Result(c, Outcome.OK, versions, nanos));
+                });
+        for (Computer c : computers) {
+            if (pending.contains(c)) {
+                listener.accept(new Result(c, c.getChannel() == null ? Outcome.OFFLINE : Outcome.NO_ANSWER, null, 0));
+            }
+        }
+    }
+
+    enum Outcome {
+        OK,
+        /** The agent is not connected. */
+        OFFLINE,
+        /** The probe failed or did not complete before the timeout. */
+        NO_ANSWER
+    }
+
+    static final class Result {
+
+        private final String node;
+
+        private final Outcome outcome;
+
+        @CheckForNull
+        private final String jvmVersion;
+
+        @CheckForNull
+        private final String remotingVersion;
+
+        private final long roundTripNanos;
+
+        private final boolean offline;
+
+        Result(Computer c, Outcome outcome, @CheckForNull AgentVersions versions, long roundTripNanos) {
+            this.node = c.getName();
+            this.outcome = outcome;
+            this.jvmVersion = versions == null ? null : versions.getJvm();
+            this.remotingVersion = versions == null ? null : versions.getRemoting();
+            this.roundTripNanos = roundTripNanos;
+            this.offline = c.isOffline();
+        }
+
+        String getNode() {
+            return node;
+        }
+
+        Outcome getOutcome() {
+            return outcome;
+        }
+
+        @CheckForNull
+        String getJvmVersion() {
+            return jvmVersion;
+        }
+
+        @CheckForNull
+        String getRemotingVersion() {
+            return remotingVersion;
+        }
+
+        JSONObject toJSON() {
+            JSONObject json = new JSONObject();
+            json.put("node", node);
+            json.put("outcome", outcome.name().toLowerCase(Locale.ROOT));
+            if (outcome == Outcome.OK) {
+                json.put("jvmVersion", jvmVersion);
+                json.put("remotingVersion", remotingVersion);
+                json.put("roundTripMillis", roundTripNanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            json.put("offline", offline);
+            return json;
+        }
+
+        @Override
+        public String toString() {
+            if (outcome != Outcome.OK) {
+                return node + " " + outcome.name().toLowerCase(Locale.ROOT);
+            }
+            return String.format(
+                    Locale.ROOT,
+                    "%s jvm=%s remoting=%s %.1fms%s",
+                    node,
+                    jvmVersion,
+                    remotingVersion,
+                    roundTripNanos / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                    offline ? " offline" : "");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Node;
+import hudson.model.PeriodicWork;
+import java.util.concurrent.TimeUnit;
+import jenkins.model.NodeListener;
+
+/**
+ * Drops the state the monitors hold for a node as soon as it is deleted or renamed, so that the heap of controllers
+ * with many ephemeral agents stays flat.
+ */
+@Extension
+public class AgentStateCleanup extends NodeListener {
+
+    @Override
+    protected void onDeleted(@NonNull Node node) {
+        AgentCache.removeAll(node.getNodeName());
+        AgentDrain.removeAll(node.getNodeName());
+    }
+
+    @Override
+    protected void onUpdated(@NonNull Node oldOne, @NonNull Node newOne) {
+        if (!oldOne.getNodeName().equals(newOne.getNodeName())) {
+            AgentCache.removeAll(oldOne.getNodeName());
+            AgentDrain.removeAll(oldOne.getNodeName());
+        }
+    }
+
+    /**
+     * Removes the state of the agents not seen for {@link AgentCache#TTL_MILLIS}, for example agents removed while
+     * the controller was not notified, and the drains of the nodes that no longer exist.
+     */
+    @Extension
+    public static class Expiry extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return TimeUnit.HOURS.toMillis(1);
+        }
+
+        @Override
+        protected void doRun() {
+            AgentCache.expireAll();
+            AgentDrain.removeMissing();
+        }
+    }
+}
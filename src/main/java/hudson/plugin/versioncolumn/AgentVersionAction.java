@@ -0,0 +1,206 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Action;
+import hudson.model.Computer;
+import hudson.model.InvisibleAction;
+import hudson.model.TransientComputerActionFactory;
+import java.util.Collection;
+import java.util.List;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Structured view of the versions of an agent for the REST API, so that clients neither pull nor parse the version
+ * strings of the monitor data. Fields are read from the state of the monitors when requested, so a {@code tree}
+ * query only pays for what it selects, for example
+ * {@code /computer/api/json?tree=computer[displayName,actions[jvm[feature,update],jvmCompatible,stale]]}.
+ *
+ * <p>No agent is probed to answer.
+ */
+@ExportedBean(defaultVisibility = 2)
+public final class AgentVersionAction extends InvisibleAction {
+
+    /**
+     * The versions are stale after two periods of the node monitors without a probe answered by the agent.
+     */
+    static final long STALE_MILLIS = 2 * CycleWatchdog.PERIOD_MILLIS;
+
+    private final Computer computer;
+
+    private final JVMVersionMonitor.JvmVersionDescriptor jvm;
+
+    private final VersionMonitor.DescriptorImpl remoting;
+
+    AgentVersionAction(
+            Computer computer, JVMVersionMonitor.JvmVersionDescriptor jvm, VersionMonitor.DescriptorImpl remoting) {
+        this.computer = computer;
+        this.jvm = jvm;
+        this.remoting = remoting;
+    }
+
+    /**
+     * The versions of the given computer, as known by the monitors.
+     */
+    static AgentVersionAction of(@NonNull Computer c) {
+        Jenkins j = Jenkins.get();
+        return new AgentVersionAction(
+                c,
+                j.getDescriptorByType(JVMVersionMonitor.JvmVersionDescriptor.class),
+                j.getDescriptorByType(VersionMonitor.DescriptorImpl.class));
+    }
+
+    /**
+     * The JVM version last reported by the agent.
+     */
+    @CheckForNull
+    @Exported
+    public JvmVersion getJvm() {
+        String version = jvm.getVersions().get(computer);
+        if (version == null) {
+            return null;
+        }
+        try {
+            return new JvmVersion(Runtime.Version.parse(version));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The remoting version last reported by the agent.
+     */
+    @CheckForNull
+    @Exported
+    public String getRemoting() {
+        return remoting.getVersions().get(computer);
+    }
+
+    /**
+     * Whether the JVM of the agent is acceptable to the JVM version monitor, {@code null} if it is not known.
+     */
+    @CheckForNull
+    @Exported
+    public Boolean getJvmCompatible() {
+        return jvm.verdict(computer);
+    }
+
+    /**
+     * Whether the remoting version of the agent is acceptable to the remoting version monitor, {@code null} if it is
+     * not known.
+     */
+    @CheckForNull
+    @Exported
+    public Boolean getRemotingCompatible() {
+        return remoting.verdict(computer);
+    }
+
+    /**
+     * When the agent last answered a version probe, in milliseconds since the epoch, or {@code -1}. Agents whose
+     * versions are inferred by {@link VersionSampling} are not probed every cycle.
+     */
+    @Exported
+    public long getLastProbed() {
+        return SharedVersionProbe.get().lastProbed(computer);
+    }
+
+    /**
+     * The number of milliseconds since the agent last answered a version probe, or {@code -1}.
+     */
+    @Exported
+    public long getStaleness() {
+        long lastProbed = getLastProbed();
+        return lastProbed < 0 ? -1 : Math.max(0, System.currentTimeMillis() - lastProbed);
+    }
+
+    /**
+     * Whether the versions are unknown, or were not confirmed by the agent for {@link #STALE_MILLIS}.
+     */
+    @Exported
+    public boolean isStale() {
+        long staleness = getStaleness();
+        return staleness < 0 || staleness > STALE_MILLIS;
+    }
+
+    /**
+     * The components of a JVM version.
+     */
+    @ExportedBean(defaultVisibility = 3)
+    public static final class JvmVersion {
+
+        private final Runtime.Version version;
+
+        JvmVersion(@NonNull Runtime.Version version) {
+            this.version = version;
+        }
+
+        @Exported
+        public int getFeature() {
+            return version.feature();
+        }
+
+        @Exported
+        public int getInterim() {
+            return version.interim();
+        }
+
+        @Exported
+        public int getUpdate() {
+            return version.update();
+        }
+
+        @Exported
+        public int getPatch() {
+            return version.patch();
+        }
+
+        /**
+         * The build number, or {@code -1} if the version has none.
+         */
+        @Exported
+        public int getBuild() {
+            return version.build().orElse(-1);
+        }
+
+        @Exported
+        public String getVersion() {
+            return version.toString();
+        }
+    }
+
+    @Extension
+    public static class Factory extends TransientComputerActionFactory {
+
+        @NonNull
+        @Override
+        public Collection<? extends Action> createFor(@NonNull Computer target) {
+            return List.of(of(target));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import java.io.Serializable;
+
+/**
+ * The JVM and remoting versions of an agent, and optionally its runtime profile and host identity, as collected by a
+ * single probe.
+ */
+final class AgentVersions implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String jvm;
+
+    private final String remoting;
+
+    @CheckForNull
+    private final RuntimeProfile profile;
+
+    @CheckForNull
+    private final String host;
+
+    AgentVersions(String jvm, String remoting, @CheckForNull RuntimeProfile profile) {
+        this(jvm, remoting, profile, null);
+    }
+
+    AgentVersions(String jvm, String remoting, @CheckForNull RuntimeProfile profile, @CheckForNull String host) {
+        this.jvm = jvm;
+        this.remoting = remoting;
+        this.profile = profile;
+        this.host = host;
+    }
+
+    String getJvm() {
+        return jvm;
+    }
+
+    String getRemoting() {
+        return remoting;
+    }
+
+    @CheckForNull
+    RuntimeProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * The identity of the host of the agent, see {@link SharedRegistry}.
+     */
+    @CheckForNull
+    String getHost() {
+        return host;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.model.Computer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Returns the versions of the current agent as last collected by the version monitors, without any remote call, so
+ * that Pipelines can check the JVM of their agent without running {@code java -version}.
+ *
+ * <p>The result is a map with the {@code jvm} and {@code remoting} versions, the {@code jvmFeature} release number,
+ * the {@code jvmCompatible} and {@code remotingCompatible} verdicts of the monitors, and {@code lastProbed} and
+ * {@code stale} as exported by {@link AgentVersionAction}. Values not known yet are {@code null}.
+ */
+public class AgentVersionsStep extends Step {
+
+    private boolean failOnIncompatible;
+
+    @DataBoundConstructor
+    public AgentVersionsStep() {}
+
+    public boolean isFailOnIncompatible() {
+        return failOnIncompatible;
+    }
+
+    /**
+     * Fails the step when a monitor found a version of the agent incompatible. Unknown versions do not fail.
+     */
+    @DataBoundSetter
+    public void setFailOnIncompatible(boolean failOnIncompatible) {
+        this.failOnIncompatible = failOnIncompatible;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) {
+        return new Execution(context, failOnIncompatible);
+    }
+
+    private static final class Execution extends SynchronousStepExecution<Map<String, Object>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final boolean failOnIncompatible;
+
+        Execution(StepContext context, boolean failOnIncompatible) {
+            super(context);
+            this.failOnIncompatible = failOnIncompatible;
+        }
+
+        @Override
+        protected Map<String, Object> run() throws Exception {
+            Computer c = getContext().get(Computer.class);
+            if (c == null) {
+                throw new AbortException(Messages.AgentVersionsStep_NoAgent());
+            }
+            AgentVersionAction versions = AgentVersionAction.of(c);
+            AgentVersionAction.JvmVersion jvm = versions.getJvm();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("jvm", jvm == null ? null : jvm.getVersion());
+            result.put("jvmFeature", jvm == null ? null : jvm.getFeature());
+            result.put("remoting", versions.getRemoting());
+            result.put("jvmCompatible", versions.getJvmCompatible());
+            result.put("remotingCompatible", versions.getRemotingCompatible());
+            result.put("lastProbed", versions.getLastProbed());
+            result.put("stale", versions.isStale());
+            if (failOnIncompatible) {
+                if (Boolean.FALSE.equals(versions.getJvmCompatible())) {
+                    throw new AbortException(
+                            Messages.AgentVersionsStep_IncompatibleJvm(c.getName(), result.get("jvm")));
+                }
+                if (Boolean.FALSE.equals(versions.getRemotingCompatible())) {
+                    throw new AbortException(
+                            Messages.AgentVersionsStep_IncompatibleRemoting(c.getName(), versions.getRemoting()));
+                }
+            }
+            return result;
+        }
+    }
+
+    @Extension(optional = true)
+    public static class DescriptorImpl extends StepDescriptor {
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return Set.of(Computer.class);
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "agentVersions";
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.AgentVersionsStep_DisplayName();
+        }
+    }
+}
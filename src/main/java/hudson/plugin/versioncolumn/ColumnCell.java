@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import net.sf.json.JSONArray;
+
+/**
+ * A rendered cell of a version column of the nodes page: its HTML, and the numeric key the column is sorted by.
+ */
+public final class ColumnCell {
+
+    static final ColumnCell NOT_AVAILABLE = new ColumnCell("N/A", false, -1);
+
+    private final String text;
+
+    private final boolean error;
+
+    private final String html;
+
+    private final long sortKey;
+
+    /**
+     * @param error Whether the version is rejected by the monitor, and must be highlighted.
+     */
+    ColumnCell(String text, boolean error, long sortKey) {
+        this.text = text;
+        this.error = error;
+        this.html = error ? Util.wrapToErrorSpan(text) : text;
+        this.sortKey = sortKey;
+    }
+
+    public String getHtml() {
+        return html;
+    }
+
+    public long getSortKey() {
+        return sortKey;
+    }
+
+    /**
+     * The cell as sent to {@link LazyColumns}: the text, whether it is an error, and the sort key.
+     */
+    JSONArray toJSON() {
+        JSONArray json = new JSONArray();
+        json.add(text);
+        json.add(error);
+        json.add(sortKey);
+        return json;
+    }
+
+    /**
+     * Sort key of a remoting version, from its leading numeric components: {@code 3301.v4363ddcca_4e7} sorts as
+     * {@code 3301}, and {@code 4.13.3} as {@code 4.13.3}.
+     */
+    static long remotingSortKey(@NonNull String version) {
+        String[] parts = version.split("\\.", 4);
+        long key = 0;
+        boolean numeric = true;
+        for (int i = 0; i < 3; i++) {
+            numeric = numeric && i < parts.length && parts[i].matches("\\d{1,6}");
+            key = key * 1_000_000 + (numeric ? Long.parseLong(parts[i]) : 0);
+        }
+        return key;
+    }
+
+    /**
+     * Sort key of a JVM version, from its feature, interim, update and patch numbers and its build number.
+     */
+    static long jvmSortKey(@NonNull Runtime.Version version) {
+        long key = 0;
+        for (int i = 0; i < 4; i++) {
+            key = key * 1000 + Math.min(i < version.version().size() ? version.version().get(i) : 0, 999);
+        }
+        return key * 1000 + Math.min(version.build().orElse(0), 999);
+    }
+
+    /**
+     * Cells rendered by one monitor, keyed by version and verdict.
+     *
+     * <p>The verdict of a version only depends on the configuration of the monitor, which is fixed for a monitor
+     * instance: a new instance is created whenever the configuration of the monitors is saved. The cells are also
+     * dropped after each monitoring cycle so that the versions no longer in use are not kept.
+     */
+    static final class Cache {
+
+        private final Map<String, ColumnCell> cells = new ConcurrentHashMap<>();
+
+        @NonNull
+        ColumnCell get(@NonNull String version, boolean compatible, @NonNull Supplier<ColumnCell> render) {
+            return cells.computeIfAbsent(compatible ? version : "!" + version, key -> render.get());
+        }
+
+        void clear() {
+            cells.clear();
+        }
+
+        int size() {
+            return cells.size();
+        }
+    }
+}
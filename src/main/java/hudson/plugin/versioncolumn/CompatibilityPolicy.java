@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.DescriptorExtensionList;
+import hudson.ExtensionPoint;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.model.labels.LabelAtom;
+import java.util.Set;
+import jenkins.model.Jenkins;
+
+/**
+ * A rule deciding whether an agent JVM is acceptable, configured on the {@link JVMVersionMonitor} on top of its
+ * comparison mode.
+ *
+ * <p>The policies of the monitor are evaluated in order, and the first one that does not {@link Decision#ABSTAIN}
+ * decides. When all of them abstain, the comparison mode decides.
+ *
+ * <p>Policies are not evaluated for each agent: each policy is {@link #compile() compiled} once per configuration, and
+ * its decisions are remembered per distinct agent version and label set, see {@link PolicyTable}. A rule must thus
+ * only depend on its arguments.
+ */
+public abstract class CompatibilityPolicy extends AbstractDescribableImpl<CompatibilityPolicy>
+        implements ExtensionPoint {
+
+    public enum Decision {
+        ALLOW,
+        DENY,
+        ABSTAIN
+    }
+
+    /**
+     * Prepares the evaluation of this policy, for example by parsing its label expression and versions.
+     *
+     * @throws IllegalArgumentException If the policy is invalid.
+     */
+    @NonNull
+    public abstract Rule compile();
+
+    public static DescriptorExtensionList<CompatibilityPolicy, Descriptor<CompatibilityPolicy>> all() {
+        return Jenkins.get().getDescriptorList(CompatibilityPolicy.class);
+    }
+
+    /**
+     * A compiled policy.
+     */
+    public interface Rule {
+
+        /**
+         * @param labels The labels of the agent, excluding its own name.
+         */
+        @NonNull
+        Decision decide(@NonNull Runtime.Version agentVersion, @NonNull Set<LabelAtom> labels);
+
+        /**
+         * Whether the decisions depend on the labels of the agents. Decisions of rules that do not are shared by all
+         * the agents running the same version.
+         */
+        default boolean usesLabels() {
+            return false;
+        }
+    }
+}
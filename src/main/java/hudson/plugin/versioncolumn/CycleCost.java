@@ -0,0 +1,218 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import net.sf.json.JSONObject;
+
+/**
+ * CPU time and memory allocated by the monitoring cycles of a monitor, read from the per-thread counters of the JVM.
+ *
+ * <p>Only the controller thread running the cycle is accounted: it sends the probes, waits for the answers and
+ * evaluates them, while the answers themselves are read by the remoting threads. With the {@link SharedVersionProbe},
+ * the probe is thus accounted to whichever monitor starts its cycle first.
+ *
+ * <p>Values are {@code -1} when the JVM does not support the corresponding counter.
+ */
+final class CycleCost {
+
+    private static final Map<String, CycleCost> COSTS = new ConcurrentHashMap<>();
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final String monitor;
+
+    private long cycles;
+
+    private int agents;
+
+    private long cpuNanos = -1;
+
+    private long allocatedBytes = -1;
+
+    private long totalCpuNanos;
+
+    private long totalAllocatedBytes;
+
+    private long maxAllocatedBytes = -1;
+
+    private CycleCost(String monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * The cost of the cycles of the given monitor, as named in the {@link MonitoringEvents}.
+     */
+    static CycleCost of(String monitor) {
+        return COSTS.computeIfAbsent(monitor, CycleCost::new);
+    }
+
+    /**
+     * The cost of the cycles of each monitor that ran at least one cycle, by monitor.
+     */
+    static Map<String, CycleCost> all() {
+        Map<String, CycleCost> all = new TreeMap<>();
+        COSTS.forEach((monitor, cost) -> {
+            if (cost.getCycles() > 0) {
+                all.put(monitor, cost);
+            }
+        });
+        return all;
+    }
+
+    /**
+     * Starts measuring a cycle on the current thread.
+     */
+    static Measure start() {
+        return new Measure(cpuTime(), allocatedBytes());
+    }
+
+    /**
+     * Records a cycle started on the current thread.
+     *
+     * @param agents The number of agents monitored by the cycle, used to compute the cost per agent.
+     */
+    void record(Measure measure, int agents, MonitoringEvents.MonitoringCycle event) {
+        long cpu = measure.cpuNanos < 0 ? -1 : cpuTime() - measure.cpuNanos;
+        long allocated = measure.allocatedBytes < 0 ? -1 : allocatedBytes() - measure.allocatedBytes;
+        event.cpuTime = cpu;
+        event.allocated = allocated;
+        synchronized (this) {
+            cycles++;
+            this.agents = agents;
+            cpuNanos = cpu;
+            allocatedBytes = allocated;
+            totalCpuNanos += Math.max(cpu, 0);
+            totalAllocatedBytes += Math.max(allocated, 0);
+            maxAllocatedBytes = Math.max(maxAllocatedBytes, allocated);
+        }
+    }
+
+    public String getMonitor() {
+        return monitor;
+    }
+
+    public synchronized long getCycles() {
+        return cycles;
+    }
+
+    /**
+     * The number of agents monitored by the last cycle.
+     */
+    public synchronized int getAgents() {
+        return agents;
+    }
+
+    /**
+     * The CPU time of the last cycle.
+     */
+    public synchronized long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * The memory allocated by the last cycle.
+     */
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public synchronized long getAllocatedBytesPerAgent() {
+        return allocatedBytes < 0 || agents == 0 ? -1 : allocatedBytes / agents;
+    }
+
+    public synchronized long getMaxAllocatedBytes() {
+        return maxAllocatedBytes;
+    }
+
+    public synchronized long getAverageCpuNanos() {
+        return cpuNanos < 0 || cycles == 0 ? -1 : totalCpuNanos / cycles;
+    }
+
+    /**
+     * The CPU time of the last cycle in milliseconds, for display.
+     */
+    public long getCpuMillis() {
+        long nanos = getCpuNanos();
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public long getAverageCpuMillis() {
+        long nanos = getAverageCpuNanos();
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public synchronized long getAverageAllocatedBytes() {
+        return allocatedBytes < 0 || cycles == 0 ? -1 : totalAllocatedBytes / cycles;
+    }
+
+    synchronized JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        json.put("cycles", cycles);
+        json.put("agents", agents);
+        json.put("cpuNanos", cpuNanos);
+        json.put("allocatedBytes", allocatedBytes);
+        json.put("allocatedBytesPerAgent", getAllocatedBytesPerAgent());
+        json.put("maxAllocatedBytes", maxAllocatedBytes);
+        json.put("averageCpuNanos", getAverageCpuNanos());
+        json.put("averageAllocatedBytes", getAverageAllocatedBytes());
+        return json;
+    }
+
+    static long cpuTime() {
+        if (!THREADS.isCurrentThreadCpuTimeSupported() || !THREADS.isThreadCpuTimeEnabled()) {
+            return -1;
+        }
+        return THREADS.getCurrentThreadCpuTime();
+    }
+
+    static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()
+                && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * The counters of the current thread at the start of a cycle.
+     */
+    static final class Measure {
+
+        private final long cpuNanos;
+
+        private final long allocatedBytes;
+
+        private Measure(long cpuNanos, long allocatedBytes) {
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+}
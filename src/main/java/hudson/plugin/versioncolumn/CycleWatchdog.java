@@ -0,0 +1,189 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Computer;
+import hudson.node_monitors.AbstractNodeMonitorDescriptor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+
+/**
+ * Detects monitoring cycles that take longer than the recurrence period of the node monitors, and degrades the
+ * monitoring one level at a time until cycles are healthy again.
+ *
+ * <p>A cycle is healthy when it takes less than half of the period. The monitoring recovers one level after
+ * {@link #HEALTHY_CYCLES} healthy cycles in a row.
+ */
+final class CycleWatchdog {
+
+    private static final Logger LOGGER = Logger.getLogger(CycleWatchdog.class.getName());
+
+    /**
+     * Same property as the one read by {@link AbstractNodeMonitorDescriptor} to schedule the monitors.
+     */
+    static final long PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(
+            SystemProperties.getLong(AbstractNodeMonitorDescriptor.class.getName() + ".periodMinutes", 60L));
+
+    static final int HEALTHY_CYCLES = 3;
+
+    /**
+     * With {@link Degradation#STAGGERED}, each agent is probed once every this many cycles.
+     */
+    static final int STAGGER = 4;
+
+    /**
+     * Sampling used with {@link Degradation#SAMPLING} when the monitor does not configure one.
+     */
+    static final VersionSampling DEFAULT_SAMPLING = new VersionSampling(VersionSampling.GroupKey.LABELS);
+
+    private final String monitor;
+
+    private final long periodMillis;
+
+    private volatile Degradation level = Degradation.NONE;
+
+    private int healthy;
+
+    private volatile long overruns;
+
+    private volatile long lastDurationMillis;
+
+    CycleWatchdog(String monitor) {
+        this(monitor, PERIOD_MILLIS);
+    }
+
+    CycleWatchdog(String monitor, long periodMillis) {
+        this.monitor = monitor;
+        this.periodMillis = periodMillis;
+    }
+
+    /**
+     * Records the duration of a full cycle, and adjusts the degradation level of the next ones.
+     */
+    synchronized void record(long durationMillis) {
+        lastDurationMillis = durationMillis;
+        if (durationMillis > periodMillis) {
+            overruns++;
+            healthy = 0;
+            Degradation previous = level;
+            level = previous.next();
+            LOGGER.warning(() -> "The " + monitor + " monitoring cycle took " + durationMillis + "ms, more than its "
+                    + periodMillis + "ms period, degrading from " + previous + " to " + level);
+        } else if (durationMillis < periodMillis / 2 && level != Degradation.NONE) {
+            if (++healthy >= HEALTHY_CYCLES) {
+                healthy = 0;
+                Degradation previous = level;
+                level = previous.previous();
+                LOGGER.info(() -> "The " + monitor + " monitoring cycles are healthy again, recovering from "
+                        + previous + " to " + level);
+            }
+        } else {
+            healthy = 0;
+        }
+    }
+
+    @NonNull
+    Degradation getLevel() {
+        return level;
+    }
+
+    long getOverruns() {
+        return overruns;
+    }
+
+    long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+
+    /**
+     * The sampling to use for the next cycle, given the one configured on the monitor.
+     */
+    VersionSampling sampling(VersionSampling configured) {
+        if (configured == null && level.compareTo(Degradation.SAMPLING) >= 0) {
+            return DEFAULT_SAMPLING;
+        }
+        return configured;
+    }
+
+    /**
+     * Whether the given computer is not probed during the given cycle, its cached result being used instead.
+     * Computers without a cached result are always probed.
+     */
+    boolean skips(@NonNull Computer c, long cycle, boolean cached) {
+        if (!cached) {
+            return false;
+        }
+        return switch (level) {
+            case STAGGERED -> Math.floorMod(c.getName().hashCode(), STAGGER) != Math.floorMod(cycle, STAGGER);
+            case CACHED -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Column caption of a monitor, showing the current degradation level if any.
+     */
+    String caption(String displayName) {
+        Degradation current = level;
+        if (current == Degradation.NONE) {
+            return displayName;
+        }
+        return Messages.CycleWatchdog_Degraded(displayName, current.getDescription());
+    }
+
+    /**
+     * Degradation levels, from the most to the least accurate.
+     */
+    enum Degradation {
+        /** Every agent is probed on every cycle. */
+        NONE(null),
+        /** Only a few agents of each group of identical agents are probed. */
+        SAMPLING(Messages.CycleWatchdog_SAMPLING()),
+        /** In addition, each agent is probed once every {@link #STAGGER} cycles. */
+        STAGGERED(Messages.CycleWatchdog_STAGGERED()),
+        /** Only agents without a known version are probed. */
+        CACHED(Messages.CycleWatchdog_CACHED());
+
+        private final String description;
+
+        Degradation(String description) {
+            this.description = description;
+        }
+
+        String getDescription() {
+            return description;
+        }
+
+        Degradation next() {
+            Degradation[] values = values();
+            return values[Math.min(ordinal() + 1, values.length - 1)];
+        }
+
+        Degradation previous() {
+            return values()[Math.max(ordinal() - 1, 0)];
+        }
+    }
+}
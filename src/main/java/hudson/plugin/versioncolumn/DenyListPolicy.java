@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import java.util.ArrayList;
+import java.util.List;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * Rejects the agents running one of the listed JVM versions, for example a release with a known defect.
+ */
+public class DenyListPolicy extends CompatibilityPolicy {
+
+    @CheckForNull
+    private final String versions;
+
+    /**
+     * @param versions One version per line. A version also matches its updates and builds: {@code 17.0.2} matches
+     *     {@code 17.0.2+8}.
+     */
+    @DataBoundConstructor
+    public DenyListPolicy(String versions) {
+        this.versions = Util.fixEmptyAndTrim(versions);
+    }
+
+    @CheckForNull
+    public String getVersions() {
+        return versions;
+    }
+
+    @NonNull
+    @Override
+    public Rule compile() {
+        List<Runtime.Version> denied = new ArrayList<>();
+        if (versions != null) {
+            for (String line : versions.split("\\R")) {
+                String version = Util.fixEmptyAndTrim(line);
+                if (version != null) {
+                    denied.add(Runtime.Version.parse(version));
+                }
+            }
+        }
+        return (agentVersion, labels) -> {
+            for (Runtime.Version version : denied) {
+                if (JdkRangePolicy.compareToMaximum(agentVersion, version) == 0) {
+                    return Decision.DENY;
+                }
+            }
+            return Decision.ABSTAIN;
+        };
+    }
+
+    @Extension
+    @Symbol("denyList")
+    public static class DescriptorImpl extends Descriptor<CompatibilityPolicy> {
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.DenyListPolicy_DisplayName();
+        }
+
+        public FormValidation doCheckVersions(@QueryParameter String value) {
+            for (String line : Util.fixNull(value).split("\\R")) {
+                FormValidation validation = JdkRangePolicy.DescriptorImpl.checkVersion(line);
+                if (validation.kind != FormValidation.Kind.OK) {
+                    return validation;
+                }
+            }
+            return FormValidation.ok();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * The JDKs installed on an agent, as last reported by the {@link InstalledJdksMonitor}.
+ */
+@ExportedBean(defaultVisibility = 2)
+public final class InstalledJdks {
+
+    static final InstalledJdks NONE = new InstalledJdks(0, Collections.emptyMap());
+
+    private final long token;
+
+    private final Map<String, String> versions;
+
+    private InstalledJdks(long token, Map<String, String> versions) {
+        this.token = token;
+        this.versions = Collections.unmodifiableMap(versions);
+    }
+
+    /**
+     * Applies the result of a scan of the agent.
+     *
+     * @param previous The JDKs known before the scan, if any.
+     */
+    @NonNull
+    static InstalledJdks apply(@CheckForNull InstalledJdks previous, @NonNull JdkScanner.Delta delta) {
+        if (previous != null && !delta.isFull() && delta.getToken() == previous.token) {
+            return previous;
+        }
+        Map<String, String> versions = new TreeMap<>();
+        if (previous != null && !delta.isFull()) {
+            versions.putAll(previous.versions);
+            versions.keySet().removeAll(delta.getRemoved());
+        }
+        versions.putAll(delta.getChanged());
+        return new InstalledJdks(delta.getToken(), versions);
+    }
+
+    /**
+     * The token of the scan these JDKs were reported by, to send along with the next scan.
+     */
+    long getToken() {
+        return token;
+    }
+
+    /**
+     * The version of each JDK home.
+     */
+    Map<String, String> getVersions() {
+        return versions;
+    }
+
+    @Exported
+    public List<Jdk> getJdks() {
+        List<Jdk> jdks = new ArrayList<>();
+        versions.forEach((home, version) -> jdks.add(new Jdk(home, version)));
+        return jdks;
+    }
+
+    /**
+     * The distinct versions installed, in ascending order.
+     */
+    @Override
+    public String toString() {
+        TreeSet<Runtime.Version> distinct = new TreeSet<>();
+        List<String> unparsable = new ArrayList<>();
+        for (String version : new TreeSet<>(versions.values())) {
+            try {
+                distinct.add(Runtime.Version.parse(version));
+            } catch (IllegalArgumentException e) {
+                unparsable.add(version);
+            }
+        }
+        List<String> all = new ArrayList<>();
+        distinct.forEach(v -> all.add(v.toString()));
+        all.addAll(unparsable);
+        return String.join(", ", all);
+    }
+
+    @ExportedBean(defaultVisibility = 3)
+    public static final class Jdk {
+
+        private final String home;
+
+        private final String version;
+
+        Jdk(String home, String version) {
+            this.home = home;
+            this.version = version;
+        }
+
+        @Exported
+        public String getHome() {
+            return home;
+        }
+
+        @Exported
+        public String getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.model.ComputerSet;
+import hudson.model.JDK;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.node_monitors.AbstractNodeMonitorDescriptor;
+import hudson.node_monitors.NodeMonitor;
+import hudson.tools.ToolLocationNodeProperty;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * JDKs installed on the agents, as opposed to the JVM running the agent process reported by the
+ * {@link JVMVersionMonitor}.
+ *
+ * <p>The agents scan the homes of the JDK tool installations, the JDKs installed automatically in their tools
+ * directory, and the configured directories. The scan is incremental, see {@link JdkScanner}.
+ */
+public class InstalledJdksMonitor extends NodeMonitor {
+
+    private static final Logger LOGGER = Logger.getLogger(InstalledJdksMonitor.class.getName());
+
+    static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    static final String MONITOR = "installedJdks";
+
+    @CheckForNull
+    private String directories;
+
+    @DataBoundConstructor
+    public InstalledJdksMonitor() {}
+
+    @CheckForNull
+    public String getDirectories() {
+        return directories;
+    }
+
+    /**
+     * Directories of the agents holding JDK homes, one per line.
+     */
+    @DataBoundSetter
+    public void setDirectories(String directories) {
+        this.directories = Util.fixEmptyAndTrim(directories);
+    }
+
+    @SuppressWarnings("unused") // jelly
+    public String toHtml(InstalledJdks jdks) {
+        if (jdks == null || jdks.getVersions().isEmpty()) {
+            return "N/A";
+        }
+        return jdks.toString();
+    }
+
+    /**
+     * The directories to scan on the given node.
+     */
+    @NonNull
+    List<String> rootsOf(@NonNull Node node) {
+        Set<String> roots = new LinkedHashSet<>();
+        for (JDK jdk : Jenkins.get().getJDKs()) {
+            try {
+                String home = Util.fixEmptyAndTrim(ToolLocationNodeProperty.getToolHome(node, jdk, TaskListener.NULL));
+                if (home != null) {
+                    roots.add(home);
+                }
+            } catch (IOException | InterruptedException e) {
+                LOGGER.log(Level.FINE, "Failed to locate " + jdk.getName() + " on " + node.getNodeName(), e);
+            }
+        }
+        FilePath root = node.getRootPath();
+        if (root != null) {
+            roots.add(root.child("tools").child(JDK.class.getName()).getRemote());
+        }
+        if (directories != null) {
+            for (String line : directories.split("\\R")) {
+                String directory = Util.fixEmptyAndTrim(line);
+                if (directory != null) {
+                    roots.add(directory);
+                }
+            }
+        }
+        return new ArrayList<>(roots);
+    }
+
+    @Extension
+    @Symbol("installedJdks")
+    public static class DescriptorImpl extends AbstractNodeMonitorDescriptor<InstalledJdks> {
+
+        private final transient AgentCache<InstalledJdks> jdks = new AgentCache<>("installedJdks.jdks");
+
+        @Override
+        protected Map<Computer, InstalledJdks> monitor() throws InterruptedException {
+            Map<Computer, InstalledJdks> data = new HashMap<>();
+            if (!(ComputerSet.getMonitors().get(this) instanceof InstalledJdksMonitor monitor)) {
+                return data;
+            }
+            Map<Computer, List<String>> roots = new HashMap<>();
+            for (Computer c : Jenkins.get().getComputers()) {
+                data.put(c, jdks.get(c));
+                Node node = c.getNode();
+                if (node != null) {
+                    roots.put(c, monitor.rootsOf(node));
+                }
+            }
+            VersionProbes.probe(
+                    MONITOR,
+                    roots.keySet(),
+                    c -> new JdkScanner.Scan(roots.get(c), token(jdks.get(c))),
+                    TIMEOUT_MILLIS,
+                    (c, delta, nanos) -> {
+                        InstalledJdks installed = InstalledJdks.apply(jdks.get(c), delta);
+                        jdks.put(c, installed);
+                        data.put(c, installed);
+                    });
+            return data;
+        }
+
+        private static long token(@CheckForNull InstalledJdks installed) {
+            return installed == null ? 0 : installed.getToken();
+        }
+
+        @Override
+        protected InstalledJdks monitor(Computer c) {
+            return jdks.get(c);
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.InstalledJdksMonitor_DisplayName();
+        }
+    }
+}
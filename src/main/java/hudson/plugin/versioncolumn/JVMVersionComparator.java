@@ -41,6 +41,7 @@ class JVMVersionComparator {
         } else if (ComparisonMode.MAJOR_MINOR_MATCH == comparisonMode) {
             compatible = compareVersionList(agentVersion.version(), controllerVersion.version()) >= 0;
         }
+        MonitoringEvents.evaluation(String.valueOf(comparisonMode), controllerVersion, agentVersion, compatible);
     }
 
     /**
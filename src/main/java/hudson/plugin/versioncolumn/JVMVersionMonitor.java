@@ -23,20 +23,30 @@
  */
 package hudson.plugin.versioncolumn;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
-import hudson.Util;
+import hudson.XmlFile;
 import hudson.model.Computer;
 import hudson.model.ComputerSet;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
 import hudson.node_monitors.AbstractAsyncNodeMonitorDescriptor;
 import hudson.node_monitors.MonitorOfflineCause;
 import hudson.node_monitors.NodeMonitor;
 import hudson.remoting.Callable;
 import hudson.util.ListBoxModel;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import jenkins.model.Jenkins;
 import jenkins.security.MasterToSlaveCallable;
 import org.jenkinsci.Symbol;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -52,6 +62,16 @@ public class JVMVersionMonitor extends NodeMonitor {
             JVMVersionComparator.ComparisonMode.RUNTIME_GREATER_OR_EQUAL_MASTER_BYTECODE;
     private transient Boolean disconnect;
 
+    private VersionSampling sampling;
+
+    private AgentDrain.Enforcement enforcement = AgentDrain.Enforcement.OFFLINE;
+
+    private List<CompatibilityPolicy> policies = new ArrayList<>();
+
+    private transient volatile PolicyTable table;
+
+    private transient ColumnCell.Cache cells = new ColumnCell.Cache();
+
     @DataBoundConstructor
     public JVMVersionMonitor(JVMVersionComparator.ComparisonMode comparisonMode) {
         this.comparisonMode = comparisonMode;
@@ -74,82 +94,411 @@ public class JVMVersionMonitor extends NodeMonitor {
         if (disconnect != null) {
             this.setIgnored(!disconnect);
         }
+        if (policies == null) {
+            policies = new ArrayList<>();
+        }
+        if (enforcement == null) {
+            enforcement = AgentDrain.Enforcement.OFFLINE;
+        }
+        cells = new ColumnCell.Cache();
         return this;
     }
 
     @SuppressWarnings("unused") // jelly
     public String toHtml(String version) {
+        return cell(version).getHtml();
+    }
+
+    /**
+     * The cell of the given version, rendered once per version rather than once per agent and page view.
+     */
+    @SuppressWarnings("unused") // jelly
+    public ColumnCell cell(String version) {
+        return cell(null, version);
+    }
+
+    /**
+     * The cell of the given version on the given computer, whose labels may matter to the {@link #getPolicies()}.
+     */
+    @SuppressWarnings("unused") // jelly
+    public ColumnCell cell(@CheckForNull Computer c, String version) {
         if (version == null || version.equals("N/A")) {
-            return "N/A";
+            return ColumnCell.NOT_AVAILABLE;
         }
-        final JVMVersionComparator jvmVersionComparator =
-                new JVMVersionComparator(CONTROLLER_VERSION, Runtime.Version.parse(version), comparisonMode);
-        if (jvmVersionComparator.isNotCompatible()) {
-            return Util.wrapToErrorSpan(version);
+        boolean compatible = isCompatible(version, c);
+        return cells.get(
+                version,
+                compatible,
+                () -> new ColumnCell(version, !compatible, ColumnCell.jvmSortKey(Runtime.Version.parse(version))));
+    }
+
+    /**
+     * Whether the column is rendered as a placeholder, filled in by the browser from {@link LazyColumns}.
+     */
+    @SuppressWarnings("unused") // jelly
+    public boolean isLazy() {
+        return LazyColumns.ENABLED;
+    }
+
+    /**
+     * Whether the given version is acceptable on the given computer, according to the policies and then the
+     * comparison mode of this monitor.
+     *
+     * @throws IllegalArgumentException If the version cannot be parsed.
+     */
+    boolean isCompatible(@NonNull String version, @CheckForNull Computer c) {
+        PolicyTable t = table;
+        if (t == null) {
+            table = t = new PolicyTable(CONTROLLER_VERSION, comparisonMode, policies);
         }
-        return version;
+        return t.isCompatible(version, c == null ? null : c.getNode());
+    }
+
+    @Override
+    public String getColumnCaption() {
+        String caption = super.getColumnCaption();
+        if (caption != null && getDescriptor() instanceof JvmVersionDescriptor descriptor) {
+            return descriptor.getWatchdog().caption(caption);
+        }
+        return caption;
     }
 
     public JVMVersionComparator.ComparisonMode getComparisonMode() {
         return comparisonMode;
     }
 
+    public VersionSampling getSampling() {
+        return sampling;
+    }
+
+    @DataBoundSetter
+    public void setSampling(VersionSampling sampling) {
+        this.sampling = sampling;
+    }
+
+    public AgentDrain.Enforcement getEnforcement() {
+        return enforcement;
+    }
+
+    @DataBoundSetter
+    public void setEnforcement(AgentDrain.Enforcement enforcement) {
+        this.enforcement = enforcement == null ? AgentDrain.Enforcement.OFFLINE : enforcement;
+    }
+
+    public List<CompatibilityPolicy> getPolicies() {
+        return policies;
+    }
+
+    @DataBoundSetter
+    public void setPolicies(List<CompatibilityPolicy> policies) {
+        this.policies = policies == null ? new ArrayList<>() : new ArrayList<>(policies);
+        table = null;
+        cells.clear();
+    }
+
     @Extension
     @Symbol("jvmVersion")
     public static class JvmVersionDescriptor extends AbstractAsyncNodeMonitorDescriptor<String> {
 
+        private final transient AgentCache<String> versions = new AgentCache<>("jvmVersion.versions");
+
+        /**
+         * Last verdict of each agent, so that only verdict changes are published.
+         */
+        private final transient AgentCache<Boolean> agentVerdicts = new AgentCache<>("jvmVersion.verdicts");
+
+        /**
+         * The comparison mode the current offline/online state of the agents was computed with.
+         */
+        private transient volatile JVMVersionComparator.ComparisonMode appliedComparisonMode;
+
+        /**
+         * Whether compatibility policies were involved in the current offline/online state of the agents.
+         */
+        private transient volatile boolean appliedPolicies;
+
+        /**
+         * The enforcement mode the current offline/online state of the agents was computed with.
+         */
+        private transient volatile AgentDrain.Enforcement appliedEnforcement;
+
+        private final transient AgentDrain drain = AgentDrain.of(MonitoringEvents.JVM);
+
+        private final transient AtomicLong cycles = new AtomicLong();
+
+        private final transient CycleWatchdog watchdog = new CycleWatchdog(MonitoringEvents.JVM);
+
+        private final transient CycleCost cost = CycleCost.of(MonitoringEvents.JVM);
+
+        private final transient MismatchLog mismatches = new MismatchLog(LOGGER, (count, versions) ->
+                Messages.JVMVersionMonitor_MismatchSummary(count, CONTROLLER_VERSION, versions));
+
+        private final transient MismatchLog drains = new MismatchLog(
+                LOGGER,
+                (count, versions) -> Messages.JVMVersionMonitor_DrainedSummary(count, CONTROLLER_VERSION, versions),
+                n -> n + " more agents were drained during this cycle");
+
         @Override
         protected Map<Computer, String> monitor() throws InterruptedException {
-            Result<String> base = monitorDetailed();
-            Map<Computer, String> data = base.getMonitoringData();
-            JVMVersionMonitor monitor =
-                    (JVMVersionMonitor) ComputerSet.getMonitors().get(this);
+            return monitor(Jenkins.get().getComputers());
+        }
+
+        /**
+         * Runs a monitoring cycle over the given computers.
+         */
+        Map<Computer, String> monitor(Computer[] computers) throws InterruptedException {
+            return monitor(computers, getMonitoringTimeOut());
+        }
+
+        /**
+         * Runs a monitoring cycle over the given computers, waiting for their answers up to the given time out.
+         */
+        Map<Computer, String> monitor(Computer[] computers, long timeoutMillis) throws InterruptedException {
+            long start = System.currentTimeMillis();
+            CycleCost.Measure measure = CycleCost.start();
+            MonitoringEvents.MonitoringCycle cycle = new MonitoringEvents.MonitoringCycle(MonitoringEvents.JVM);
+            cycle.begin();
+            // null when the monitor is disabled, in which case the agents are only checked against the defaults
+            JVMVersionMonitor monitor = (JVMVersionMonitor) ComputerSet.getMonitors().get(this);
+            long cycleNumber = cycles.getAndIncrement();
+            VersionSampling sampling = monitor != null ? watchdog.sampling(monitor.sampling) : watchdog.sampling(null);
+            VersionSampling.Plan plan = sampling == null
+                    ? VersionSampling.Plan.NONE
+                    : sampling.plan(Arrays.asList(computers), cycleNumber);
+            Map<Computer, String> data = new HashMap<>();
+            List<Computer> probed = new ArrayList<>();
+            for (Computer c : computers) {
+                String cached = versions.get(c);
+                if (watchdog.skips(c, cycleNumber, cached != null)) {
+                    data.put(c, cached);
+                    continue;
+                }
+                data.put(c, null);
+                if (!plan.isDeferred(c)) {
+                    probed.add(c);
+                }
+            }
+            SharedVersionProbe shared = SharedVersionProbe.get();
+            data.putAll(shared.probe(probed, timeoutMillis, AgentVersions::getJvm));
+            cycle.probed = probed.size();
+            if (plan.getDeferredCount() > 0) {
+                List<Computer> diverged = plan.infer(data, versions::get);
+                LOGGER.fine(() -> "Inferred the JVM version of " + (plan.getDeferredCount() - diverged.size())
+                        + " agents, probing " + diverged.size() + " agents of diverging groups");
+                data.putAll(shared.probe(diverged, timeoutMillis, AgentVersions::getJvm));
+                cycle.probed += diverged.size();
+                cycle.inferred = plan.getDeferredCount() - diverged.size();
+            }
             for (Map.Entry<Computer, String> e : data.entrySet()) {
                 Computer computer = e.getKey();
                 String version = e.getValue();
-                if (base.getSkipped().contains(computer)) {
-                    assert version == null;
+                if (computer.getChannel() == null) {
+                    // skipped, as done by monitorDetailed()
                     continue;
                 }
                 if (version == null) {
                     e.setValue(version = get(computer));
                 }
-                markNodeOfflineOrOnline(computer, version, monitor);
+                update(computer, version, monitor);
+            }
+            if (monitor != null) {
+                appliedComparisonMode = monitor.comparisonMode;
+                appliedPolicies = !monitor.policies.isEmpty();
+                appliedEnforcement = monitor.enforcement;
+                monitor.cells.clear();
             }
+            cycle.agents = data.size();
+            cost.record(measure, data.size(), cycle);
+            cycle.commit();
+            mismatches.flush();
+            drains.flush();
+            drain.save();
+            VersionMonitorsManagement.recordHistory(MonitoringEvents.JVM, data);
+            watchdog.record(System.currentTimeMillis() - start);
             return data;
         }
 
-        private void markNodeOfflineOrOnline(Computer c, String agentVersionStr, JVMVersionMonitor monitor) {
-            if (agentVersionStr == null) {
+        /**
+         * Applies the comparison mode of the given monitor to the agent versions collected during the last cycle.
+         * Versions are compared in parallel and no agent is probed, so the whole fleet reflects a new comparison
+         * mode immediately instead of at the next monitoring cycle.
+         */
+        void reevaluate(JVMVersionMonitor monitor) {
+            JVMVersionComparator.ComparisonMode comparisonMode = monitor.comparisonMode;
+            appliedComparisonMode = comparisonMode;
+            appliedPolicies = !monitor.policies.isEmpty();
+            appliedEnforcement = monitor.enforcement;
+            Map<Computer, Boolean> verdicts = new ConcurrentHashMap<>();
+            Arrays.stream(Jenkins.get().getComputers()).parallel().forEach(c -> {
+                String version = versions.get(c);
+                if (parse(version) != null) {
+                    verdicts.put(c, monitor.isCompatible(version, c));
+                }
+            });
+            LOGGER.fine(() -> "Re-evaluated " + verdicts.size() + " agents with comparison mode " + comparisonMode);
+            verdicts.forEach((c, compatible) -> applyVerdict(c, versions.get(c), compatible));
+            mismatches.flush();
+            drains.flush();
+            drain.save();
+        }
+
+        AgentCache<String> getVersions() {
+            return versions;
+        }
+
+        /**
+         * Applies a version probed outside of a monitoring cycle.
+         */
+        void apply(Computer c, String version) {
+            if (ComputerSet.getMonitors().get(this) instanceof JVMVersionMonitor monitor) {
+                update(c, version, monitor);
+                mismatches.flush();
+                drains.flush();
+                drain.save();
+            }
+        }
+
+        private void update(Computer c, String version, @CheckForNull JVMVersionMonitor monitor) {
+            if (version != null && !version.equals(versions.put(c, version))) {
+                VersionEvents.version(MonitoringEvents.JVM, c, version);
+            }
+            markNodeOfflineOrOnline(c, version, monitor);
+        }
+
+        /**
+         * Whether the given agent may be online according to its cached version, without probing it.
+         *
+         * @return {@code null} if the version of the agent is not known.
+         */
+        @CheckForNull
+        Boolean isReleasable(Computer c) {
+            return isIgnored() ? Boolean.TRUE : verdict(c);
+        }
+
+        /**
+         * Whether the cached version of the given agent is acceptable, be this monitor ignored or not.
+         *
+         * @return {@code null} if the version of the agent is not known.
+         */
+        @CheckForNull
+        Boolean verdict(Computer c) {
+            String version = versions.get(c);
+            Runtime.Version agentVersion = parse(version);
+            if (agentVersion == null) {
+                return null;
+            }
+            if (ComputerSet.getMonitors().get(this) instanceof JVMVersionMonitor monitor) {
+                return monitor.isCompatible(version, c);
+            }
+            return isCompatibleByDefault(agentVersion);
+        }
+
+        /**
+         * Whether the given agent version is acceptable with the default comparison mode, used when the monitor is
+         * not configured.
+         */
+        private static boolean isCompatibleByDefault(Runtime.Version agentVersion) {
+            return new JVMVersionComparator(
+                            CONTROLLER_VERSION,
+                            agentVersion,
+                            JVMVersionComparator.ComparisonMode.RUNTIME_GREATER_OR_EQUAL_MASTER_BYTECODE)
+                    .isCompatible();
+        }
+
+        /**
+         * Brings back online an agent held offline by this monitor.
+         */
+        void release(Computer c) {
+            bringOnline(c);
+        }
+
+        CycleWatchdog getWatchdog() {
+            return watchdog;
+        }
+
+        private void markNodeOfflineOrOnline(
+                Computer c, String agentVersionStr, @CheckForNull JVMVersionMonitor monitor) {
+            Runtime.Version agentVersion = parse(agentVersionStr);
+            if (agentVersion == null) {
                 return;
             }
-            Runtime.Version agentVersion;
+            applyVerdict(
+                    c,
+                    agentVersionStr,
+                    monitor != null ? monitor.isCompatible(agentVersionStr, c) : isCompatibleByDefault(agentVersion));
+        }
+
+        private static Runtime.Version parse(String agentVersionStr) {
+            if (agentVersionStr == null) {
+                return null;
+            }
             try {
-                agentVersion = Runtime.Version.parse(agentVersionStr);
+                return Runtime.Version.parse(agentVersionStr);
             } catch (IllegalArgumentException e) {
                 LOGGER.log(Level.WARNING, "Failed to parse agent version: " + agentVersionStr, e);
-                return;
+                return null;
             }
-            final JVMVersionComparator jvmVersionComparator =
-                    new JVMVersionComparator(CONTROLLER_VERSION, agentVersion, monitor.comparisonMode);
+        }
 
-            if (jvmVersionComparator.isNotCompatible()) {
-                if (!isIgnored()) {
-                    LOGGER.warning(
-                            Messages.JVMVersionMonitor_MarkedOffline(c.getName(), CONTROLLER_VERSION, agentVersionStr));
-                    markOffline(c, new JVMMismatchCause(Messages.JVMVersionMonitor_OfflineCause()));
-                } else {
+        private void applyVerdict(Computer c, String agentVersionStr, boolean compatible) {
+            if (!Boolean.valueOf(compatible).equals(agentVerdicts.put(c, compatible))) {
+                VersionEvents.verdict(MonitoringEvents.JVM, c, agentVersionStr, compatible);
+            }
+            if (!compatible) {
+                if (isIgnored()) {
                     LOGGER.finer("Version incompatibility detected, but keeping the agent '"
                             + c.getName()
                             + "' online per the node monitor configuration");
-                    if (c.isOffline() && c.getOfflineCause() instanceof JVMMismatchCause) {
-                        c.setTemporarilyOffline(false, null);
-                    }
+                    bringOnline(c);
+                } else if (enforcement() == AgentDrain.Enforcement.DRAIN) {
+                    putBackOnline(c);
+                    drains.mismatch(
+                            c,
+                            agentVersionStr,
+                            drain.drain(c),
+                            () -> Messages.JVMVersionMonitor_Drained(c.getName(), CONTROLLER_VERSION, agentVersionStr));
+                } else {
+                    drain.release(c);
+                    mismatches.mismatch(
+                            c,
+                            agentVersionStr,
+                            !(c.getOfflineCause() instanceof JVMMismatchCause),
+                            () -> Messages.JVMVersionMonitor_MarkedOffline(
+                                    c.getName(), CONTROLLER_VERSION, agentVersionStr));
+                    JVMMismatchCause cause = new JVMMismatchCause(Messages.JVMVersionMonitor_OfflineCause());
+                    markOffline(c, cause);
+                    MonitoringEvents.transition(MonitoringEvents.JVM, c, true, cause);
+                    VersionEvents.transition(MonitoringEvents.JVM, c, true);
                 }
             } else {
-                if (c.isOffline() && c.getOfflineCause() instanceof JVMMismatchCause) {
-                    c.setTemporarilyOffline(false, null);
-                }
+                bringOnline(c);
+            }
+        }
+
+        private AgentDrain.Enforcement enforcement() {
+            return ComputerSet.getMonitors().get(this) instanceof JVMVersionMonitor monitor
+                    ? monitor.enforcement
+                    : AgentDrain.Enforcement.OFFLINE;
+        }
+
+        /**
+         * Brings back online, or stops draining, an agent held by this monitor.
+         */
+        private void bringOnline(Computer c) {
+            if (drain.release(c)) {
+                LOGGER.fine(() -> "Stopped draining " + c.getName());
+            }
+            putBackOnline(c);
+        }
+
+        /**
+         * Brings back online an agent taken offline by this monitor.
+         */
+        private void putBackOnline(Computer c) {
+            if (c.isOffline() && c.getOfflineCause() instanceof JVMMismatchCause) {
+                c.setTemporarilyOffline(false, null);
+                MonitoringEvents.transition(MonitoringEvents.JVM, c, false, null);
+                VersionEvents.transition(MonitoringEvents.JVM, c, false);
             }
         }
 
@@ -164,6 +513,14 @@ public class JVMVersionMonitor extends NodeMonitor {
             return new JavaVersion();
         }
 
+        public ListBoxModel doFillEnforcementItems() {
+            ListBoxModel items = new ListBoxModel();
+            for (AgentDrain.Enforcement enforcement : AgentDrain.Enforcement.values()) {
+                items.add(enforcement.getDescription(), enforcement.name());
+            }
+            return items;
+        }
+
         public ListBoxModel doFillComparisonModeItems() {
             ListBoxModel items = new ListBoxModel();
             for (JVMVersionComparator.ComparisonMode goal : JVMVersionComparator.ComparisonMode.values()) {
@@ -173,6 +530,33 @@ public class JVMVersionMonitor extends NodeMonitor {
         }
     }
 
+    /**
+     * Re-evaluates the fleet as soon as the node monitors configuration is saved with a new comparison mode or with
+     * compatibility policies, be it from the UI or from configuration as code.
+     */
+    @Extension
+    public static class ComparisonModeListener extends SaveableListener {
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (file == null || !"nodeMonitors.xml".equals(file.getFile().getName())) {
+                return;
+            }
+            JvmVersionDescriptor descriptor = Jenkins.get().getDescriptorByType(JvmVersionDescriptor.class);
+            if (descriptor == null
+                    || !(ComputerSet.getMonitors().get(descriptor) instanceof JVMVersionMonitor monitor)) {
+                return;
+            }
+            if (descriptor.appliedComparisonMode != null
+                    && (descriptor.appliedComparisonMode != monitor.comparisonMode
+                            || descriptor.appliedEnforcement != monitor.enforcement
+                            || descriptor.appliedPolicies
+                            || !monitor.policies.isEmpty())) {
+                descriptor.reevaluate(monitor);
+            }
+        }
+    }
+
     public static class JVMMismatchCause extends MonitorOfflineCause {
 
         private final String message;
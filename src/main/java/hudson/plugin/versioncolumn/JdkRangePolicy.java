@@ -0,0 +1,167 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Descriptor;
+import hudson.model.Label;
+import hudson.model.labels.LabelAtom;
+import hudson.util.FormValidation;
+import java.util.Set;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * Requires the agents matching a label expression to run a JVM within a range of versions, both bounds included.
+ * Agents within the range are accepted whatever the comparison mode.
+ */
+public class JdkRangePolicy extends CompatibilityPolicy {
+
+    @CheckForNull
+    private final String label;
+
+    @CheckForNull
+    private String minimum;
+
+    @CheckForNull
+    private String maximum;
+
+    /**
+     * @param label The label expression of the agents the policy applies to, all agents if empty.
+     */
+    @DataBoundConstructor
+    public JdkRangePolicy(String label) {
+        this.label = Util.fixEmptyAndTrim(label);
+    }
+
+    @CheckForNull
+    public String getLabel() {
+        return label;
+    }
+
+    @CheckForNull
+    public String getMinimum() {
+        return minimum;
+    }
+
+    @DataBoundSetter
+    public void setMinimum(String minimum) {
+        this.minimum = Util.fixEmptyAndTrim(minimum);
+    }
+
+    @CheckForNull
+    public String getMaximum() {
+        return maximum;
+    }
+
+    @DataBoundSetter
+    public void setMaximum(String maximum) {
+        this.maximum = Util.fixEmptyAndTrim(maximum);
+    }
+
+    @NonNull
+    @Override
+    public Rule compile() {
+        Label expression = label == null ? null : Label.parseExpression(label);
+        Runtime.Version min = minimum == null ? null : Runtime.Version.parse(minimum);
+        Runtime.Version max = maximum == null ? null : Runtime.Version.parse(maximum);
+        return new Rule() {
+            @NonNull
+            @Override
+            public Decision decide(@NonNull Runtime.Version agentVersion, @NonNull Set<LabelAtom> labels) {
+                if (expression != null && !expression.matches(labels)) {
+                    return Decision.ABSTAIN;
+                }
+                boolean inRange = (min == null || agentVersion.compareToIgnoreOptional(min) >= 0)
+                        && (max == null || compareToMaximum(agentVersion, max) <= 0);
+                return inRange ? Decision.ALLOW : Decision.DENY;
+            }
+
+            @Override
+            public boolean usesLabels() {
+                return expression != null;
+            }
+        };
+    }
+
+    /**
+     * Compares a version to the maximum of the range, ignoring the components the maximum does not have: a maximum of
+     * {@code 21} includes {@code 21.0.5+11}.
+     */
+    static int compareToMaximum(Runtime.Version version, Runtime.Version maximum) {
+        for (int i = 0; i < maximum.version().size(); i++) {
+            int component = i < version.version().size() ? version.version().get(i) : 0;
+            int bound = maximum.version().get(i);
+            if (component != bound) {
+                return Integer.compare(component, bound);
+            }
+        }
+        if (maximum.build().isPresent()) {
+            return Integer.compare(version.build().orElse(0), maximum.build().get());
+        }
+        return 0;
+    }
+
+    @Extension
+    @Symbol("jdkRange")
+    public static class DescriptorImpl extends Descriptor<CompatibilityPolicy> {
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.JdkRangePolicy_DisplayName();
+        }
+
+        public FormValidation doCheckLabel(@QueryParameter String value) {
+            String label = Util.fixEmptyAndTrim(value);
+            return label == null ? FormValidation.ok() : Label.validateLabelExpression(label, null);
+        }
+
+        public FormValidation doCheckMinimum(@QueryParameter String value) {
+            return checkVersion(value);
+        }
+
+        public FormValidation doCheckMaximum(@QueryParameter String value) {
+            return checkVersion(value);
+        }
+
+        static FormValidation checkVersion(String value) {
+            String version = Util.fixEmptyAndTrim(value);
+            if (version == null) {
+                return FormValidation.ok();
+            }
+            try {
+                Runtime.Version.parse(version);
+                return FormValidation.ok();
+            } catch (IllegalArgumentException e) {
+                return FormValidation.error(Messages.JdkRangePolicy_InvalidVersion(version));
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import jenkins.security.MasterToSlaveCallable;
+
+/**
+ * Scans JDK directories of an agent, from the agent itself.
+ *
+ * <p>Each directory is either a JDK home, identified by its {@code release} file, or a directory holding JDK homes.
+ * The content of each directory is remembered along with its modification time, so that a directory is only read
+ * again once it has been modified: repeated scans only cost one {@code stat} per directory.
+ *
+ * <p>The JDKs found are remembered as well, along with a token identifying them, so that only the changes since the
+ * last scan of the controller are sent back. The state lives in the agent JVM for as long as the agent is connected,
+ * a reconnected agent answers the next scan with all of its JDKs.
+ */
+final class JdkScanner {
+
+    private static final JdkScanner AGENT = new JdkScanner();
+
+    private final Map<String, Directory> directories = new HashMap<>();
+
+    private Map<String, String> reported = Collections.emptyMap();
+
+    private long token;
+
+    /**
+     * Number of {@code release} files and directory listings read, for tests.
+     */
+    int reads;
+
+    /**
+     * Scans the given directories.
+     *
+     * @param since The token of the last scan received by the controller, {@code 0} if none.
+     */
+    synchronized Delta scan(@NonNull List<String> roots, long since) {
+        Map<String, String> found = new TreeMap<>();
+        Set<String> seen = new HashSet<>();
+        for (String root : roots) {
+            Directory dir = load(root, true, seen);
+            if (dir == null) {
+                continue;
+            }
+            if (dir.version != null) {
+                found.put(root, dir.version);
+                continue;
+            }
+            for (String child : dir.children) {
+                Directory home = load(child, false, seen);
+                if (home != null && home.version != null) {
+                    found.put(child, home.version);
+                }
+            }
+        }
+        directories.keySet().retainAll(seen);
+
+        Delta delta;
+        if (since != token || token == 0) {
+            delta = new Delta(true, found, Collections.emptySet());
+        } else {
+            Map<String, String> changed = new TreeMap<>();
+            for (Map.Entry<String, String> e : found.entrySet()) {
+                if (!e.getValue().equals(reported.get(e.getKey()))) {
+                    changed.put(e.getKey(), e.getValue());
+                }
+            }
+            Set<String> removed = new HashSet<>(reported.keySet());
+            removed.removeAll(found.keySet());
+            delta = new Delta(false, changed, removed);
+        }
+        if (delta.full || !delta.isEmpty()) {
+            reported = found;
+            long next;
+            do {
+                next = ThreadLocalRandom.current().nextLong();
+            } while (next == 0 || next == token);
+            token = next;
+        }
+        delta.token = token;
+        return delta;
+    }
+
+    @CheckForNull
+    private Directory load(String path, boolean root, Set<String> seen) {
+        File file = new File(path);
+        long modified = file.lastModified();
+        if (modified == 0 || !file.isDirectory()) {
+            return null;
+        }
+        seen.add(path);
+        Directory dir = directories.get(path);
+        if (dir != null && dir.modified == modified && dir.root == root) {
+            return dir;
+        }
+        dir = new Directory(modified, root, readVersion(file));
+        if (root && dir.version == null) {
+            reads++;
+            File[] children = file.listFiles(File::isDirectory);
+            if (children != null) {
+                for (File child : children) {
+                    dir.children.add(child.getPath());
+                }
+            }
+        }
+        directories.put(path, dir);
+        return dir;
+    }
+
+    /**
+     * Reads the version of a JDK home from its {@code release} file.
+     */
+    @CheckForNull
+    private String readVersion(File home) {
+        File release = new File(home, "release");
+        if (!release.isFile()) {
+            return null;
+        }
+        reads++;
+        String version = null;
+        try {
+            for (String line : Files.readAllLines(release.toPath(), StandardCharsets.UTF_8)) {
+                if (line.startsWith("JAVA_RUNTIME_VERSION=")) {
+                    return unquote(line.substring("JAVA_RUNTIME_VERSION=".length()));
+                } else if (line.startsWith("JAVA_VERSION=")) {
+                    version = unquote(line.substring("JAVA_VERSION=".length()));
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return version;
+    }
+
+    private static String unquote(String value) {
+        value = value.trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static final class Directory {
+
+        private final long modified;
+
+        private final boolean root;
+
+        @CheckForNull
+        private final String version;
+
+        private final List<String> children = new ArrayList<>();
+
+        Directory(long modified, boolean root, @CheckForNull String version) {
+            this.modified = modified;
+            this.root = root;
+            this.version = version;
+        }
+    }
+
+    /**
+     * The JDKs found by a scan, either all of them or only the changes since the previous scan.
+     */
+    static final class Delta implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final boolean full;
+
+        private final Map<String, String> changed;
+
+        private final Set<String> removed;
+
+        private long token;
+
+        Delta(boolean full, Map<String, String> changed, Set<String> removed) {
+            this.full = full;
+            this.changed = changed;
+            this.removed = removed;
+        }
+
+        /**
+         * Whether {@link #getChanged()} holds all the JDKs of the agent, rather than the changes since the last scan.
+         */
+        boolean isFull() {
+            return full;
+        }
+
+        /**
+         * The version of each JDK home found or changed.
+         */
+        Map<String, String> getChanged() {
+            return changed;
+        }
+
+        Set<String> getRemoved() {
+            return removed;
+        }
+
+        long getToken() {
+            return token;
+        }
+
+        boolean isEmpty() {
+            return changed.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    /**
+     * Scans the given directories of the agent it is sent to.
+     */
+    static final class Scan extends MasterToSlaveCallable<Delta, IOException> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> roots;
+
+        private final long since;
+
+        Scan(List<String> roots, long since) {
+            this.roots = roots;
+            this.since = since;
+        }
+
+        @Override
+        public Delta call() {
+            return AGENT.scan(roots, since);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.ComputerSet;
+import hudson.model.RootAction;
+import hudson.node_monitors.NodeMonitor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.verb.GET;
+
+/**
+ * Serves the cells of the version columns of the nodes page in a single call, so that the columns can be rendered as
+ * placeholders and filled in by the browser once the page is displayed.
+ *
+ * <p>Enabled with the {@code hudson.plugin.versioncolumn.LazyColumns.enabled} system property. The cells are read
+ * from the results of the last monitoring cycle, no agent is probed.
+ */
+@Extension
+public class LazyColumns implements RootAction {
+
+    static final boolean ENABLED = SystemProperties.getBoolean(LazyColumns.class.getName() + ".enabled");
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return "versionColumns";
+    }
+
+    /**
+     * The cells of each version column, as {@code {monitor: {cells: [[text, error, sortKey]...], nodes: {node:
+     * index}}}}: agents sharing a version share a cell, so the answer stays small for large fleets.
+     */
+    @GET
+    public HttpResponse doCells() {
+        Jenkins j = Jenkins.get();
+        j.checkPermission(Jenkins.READ);
+        Computer[] computers = j.getComputers();
+        JSONObject json = new JSONObject();
+        for (NodeMonitor monitor : ComputerSet.getMonitors()) {
+            if (monitor instanceof JVMVersionMonitor jvm) {
+                json.put(MonitoringEvents.JVM, cells(computers, monitor, jvm::cell));
+            } else if (monitor instanceof VersionMonitor remoting) {
+                json.put(MonitoringEvents.REMOTING, cells(computers, monitor, (c, version) -> remoting.cell(version)));
+            }
+        }
+        return HttpResponses.okJSON(json);
+    }
+
+    private static JSONObject cells(
+            Computer[] computers, NodeMonitor monitor, BiFunction<Computer, String, ColumnCell> cell) {
+        Map<ColumnCell, Integer> indexes = new HashMap<>();
+        JSONArray cells = new JSONArray();
+        JSONObject nodes = new JSONObject();
+        for (Computer c : computers) {
+            Object data = monitor.data(c);
+            ColumnCell rendered = cell.apply(c, data instanceof String version ? version : null);
+            Integer index = indexes.get(rendered);
+            if (index == null) {
+                index = cells.size();
+                indexes.put(rendered, index);
+                cells.add(rendered.toJSON());
+            }
+            nodes.put(c.getName(), index);
+        }
+        JSONObject json = new JSONObject();
+        json.put("cells", cells);
+        json.put("nodes", nodes);
+        return json;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Computer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+
+/**
+ * Aggregates the version mismatches found during a monitoring cycle, so that a controller upgrade results in one
+ * summary per cycle rather than one warning per agent.
+ *
+ * <p>Agents taken offline, or drained, are logged individually only when their state changes, up to
+ * {@link #MAX_DETAILS_PER_CYCLE} per cycle. An unchanged summary is logged at most once per
+ * {@link #SUMMARY_INTERVAL_MILLIS}.
+ */
+final class MismatchLog {
+
+    static final int SAMPLE_NAMES = 5;
+
+    static final int MAX_DETAILS_PER_CYCLE = 20;
+
+    static final long SUMMARY_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(
+            SystemProperties.getLong(MismatchLog.class.getName() + ".summaryIntervalMinutes", 60L));
+
+    private final Logger logger;
+
+    private final BiFunction<Integer, String, String> summary;
+
+    private final IntFunction<String> more;
+
+    private final LongSupplier clock;
+
+    /**
+     * Sample agent names, per version.
+     */
+    private final Map<String, List<String>> mismatches = new TreeMap<>();
+
+    private final Map<String, Integer> counts = new TreeMap<>();
+
+    private int count;
+
+    private int details;
+
+    private int suppressed;
+
+    private String lastSummary;
+
+    private long lastSummaryAt;
+
+    /**
+     * @param summary Formats the summary from the number of incompatible agents and their versions.
+     */
+    MismatchLog(Logger logger, BiFunction<Integer, String, String> summary) {
+        this(logger, summary, System::currentTimeMillis);
+    }
+
+    MismatchLog(Logger logger, BiFunction<Integer, String, String> summary, LongSupplier clock) {
+        this(logger, summary, n -> n + " more agents were taken offline during this cycle", clock);
+    }
+
+    /**
+     * @param more Formats the number of agents whose state changed but were not logged individually.
+     */
+    MismatchLog(Logger logger, BiFunction<Integer, String, String> summary, IntFunction<String> more) {
+        this(logger, summary, more, System::currentTimeMillis);
+    }
+
+    MismatchLog(
+            Logger logger,
+            BiFunction<Integer, String, String> summary,
+            IntFunction<String> more,
+            LongSupplier clock) {
+        this.logger = logger;
+        this.summary = summary;
+        this.more = more;
+        this.clock = clock;
+    }
+
+    /**
+     * Records an incompatible agent.
+     *
+     * @param transition Whether the agent was not already offline, or drained, because of its version.
+     * @param detail The message logged for the agent if its state changed.
+     */
+    synchronized void mismatch(
+            @NonNull Computer c, String version, boolean transition, @NonNull Supplier<String> detail) {
+        count++;
+        String key = String.valueOf(version);
+        List<String> names = mismatches.computeIfAbsent(key, v -> new ArrayList<>());
+        if (names.size() < SAMPLE_NAMES) {
+            names.add(c.getName());
+        }
+        counts.merge(key, 1, Integer::sum);
+        if (!transition) {
+            return;
+        }
+        if (details < MAX_DETAILS_PER_CYCLE) {
+            details++;
+            logger.warning(detail);
+        } else {
+            suppressed++;
+        }
+    }
+
+    /**
+     * Logs the summary of the mismatches recorded since the last call, and starts a new cycle.
+     */
+    synchronized void flush() {
+        if (count == 0) {
+            lastSummary = null;
+            reset();
+            return;
+        }
+        StringBuilder versions = new StringBuilder();
+        for (Map.Entry<String, List<String>> e : mismatches.entrySet()) {
+            if (versions.length() > 0) {
+                versions.append("; ");
+            }
+            int agents = counts.get(e.getKey());
+            versions.append(e.getKey())
+                    .append(" (")
+                    .append(agents)
+                    .append(": ")
+                    .append(String.join(", ", e.getValue()));
+            if (agents > e.getValue().size()) {
+                versions.append(", ...");
+            }
+            versions.append(')');
+        }
+        String message = summary.apply(count, versions.toString());
+        long now = clock.getAsLong();
+        boolean repeated = message.equals(lastSummary) && now - lastSummaryAt < SUMMARY_INTERVAL_MILLIS;
+        if (!repeated) {
+            lastSummary = message;
+            lastSummaryAt = now;
+        }
+        logger.log(repeated ? Level.FINE : Level.WARNING, message);
+        if (suppressed > 0) {
+            int n = suppressed;
+            logger.warning(() -> more.apply(n));
+        }
+        reset();
+    }
+
+    private void reset() {
+        mismatches.clear();
+        counts.clear();
+        count = 0;
+        details = 0;
+        suppressed = 0;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import hudson.model.Computer;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events emitted by the version monitors, so that their cost can be told apart from generic
+ * remoting work in a recording.
+ *
+ * <p>All events are disabled unless a recording enables them, in which case they are cheap enough to be left on in
+ * production.
+ */
+final class MonitoringEvents {
+
+    static final String JVM = "jvmVersion";
+
+    static final String REMOTING = "remotingVersion";
+
+    private MonitoringEvents() {}
+
+    static void probe(String monitor, Computer c, long nanos, String outcome) {
+        VersionProbe event = new VersionProbe();
+        if (event.isEnabled()) {
+            event.monitor = monitor;
+            event.node = c.getName();
+            event.latency = nanos;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    static void evaluation(String mode, Object controllerVersion, Object agentVersion, boolean compatible) {
+        ComparatorEvaluation event = new ComparatorEvaluation();
+        if (event.isEnabled()) {
+            event.mode = mode;
+            event.controllerVersion = String.valueOf(controllerVersion);
+            event.agentVersion = String.valueOf(agentVersion);
+            event.compatible = compatible;
+            event.commit();
+        }
+    }
+
+    static void transition(String monitor, Computer c, boolean offline, Object cause) {
+        StateTransition event = new StateTransition();
+        if (event.isEnabled()) {
+            event.monitor = monitor;
+            event.node = c.getName();
+            event.offline = offline;
+            event.cause = cause == null ? null : cause.toString();
+            event.commit();
+        }
+    }
+
+    @Name("hudson.plugin.versioncolumn.VersionProbe")
+    @Label("Version Probe")
+    @Description("A JVM or remoting version probe sent to an agent")
+    @Category({"Jenkins", "Version Monitors"})
+    @StackTrace(false)
+    static final class VersionProbe extends Event {
+
+        @Label("Monitor")
+        String monitor;
+
+        @Label("Node")
+        String node;
+
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+
+        @Label("Outcome")
+        String outcome;
+    }
+
+    @Name("hudson.plugin.versioncolumn.ComparatorEvaluation")
+    @Label("Comparator Evaluation")
+    @Description("Comparison of an agent version with the controller version")
+    @Category({"Jenkins", "Version Monitors"})
+    @StackTrace(false)
+    static final class ComparatorEvaluation extends Event {
+
+        @Label("Mode")
+        String mode;
+
+        @Label("Controller Version")
+        String controllerVersion;
+
+        @Label("Agent Version")
+        String agentVersion;
+
+        @Label("Compatible")
+        boolean compatible;
+    }
+
+    @Name("hudson.plugin.versioncolumn.StateTransition")
+    @Label("Agent State Transition")
+    @Description("An agent taken offline or brought back online by a version monitor")
+    @Category({"Jenkins", "Version Monitors"})
+    static final class StateTransition extends Event {
+
+        @Label("Monitor")
+        String monitor;
+
+        @Label("Node")
+        String node;
+
+        @Label("Offline")
+        boolean offline;
+
+        @Label("Cause")
+        String cause;
+    }
+
+    /**
+     * A full monitoring cycle, to be {@link #begin() begun} before probing and {@link #commit() committed} once all
+     * the agents have been evaluated.
+     */
+    @Name("hudson.plugin.versioncolumn.MonitoringCycle")
+    @Label("Monitoring Cycle")
+    @Description("A full cycle of a version monitor")
+    @Category({"Jenkins", "Version Monitors"})
+    @StackTrace(false)
+    static final class MonitoringCycle extends Event {
+
+        @Label("Monitor")
+        String monitor;
+
+        @Label("Agents")
+        int agents;
+
+        @Label("Probed Agents")
+        int probed;
+
+        @Label("Inferred Agents")
+        int inferred;
+
+        @Label("CPU Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long cpuTime;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+
+        MonitoringCycle(String monitor) {
+            this.monitor = monitor;
+        }
+    }
+}
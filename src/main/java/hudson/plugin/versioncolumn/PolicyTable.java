@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Node;
+import hudson.model.labels.LabelAtom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@link CompatibilityPolicy policies} and comparison mode of a {@link JVMVersionMonitor}, compiled into a decision
+ * table.
+ *
+ * <p>Decisions are remembered per distinct agent version, and per distinct label set when a policy depends on labels,
+ * so that the policies are evaluated once per kind of agent rather than once per agent and cycle. A table is built
+ * for a monitor instance, and a new instance is created whenever the configuration of the monitors is saved.
+ */
+final class PolicyTable {
+
+    private static final Logger LOGGER = Logger.getLogger(PolicyTable.class.getName());
+
+    /**
+     * Bounds the number of decisions remembered, in case of a constant flow of new versions or label sets.
+     */
+    static final int MAX_DECISIONS = 10_000;
+
+    private final Runtime.Version controllerVersion;
+
+    private final JVMVersionComparator.ComparisonMode comparisonMode;
+
+    private final List<CompatibilityPolicy.Rule> rules = new ArrayList<>();
+
+    private final boolean usesLabels;
+
+    private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+    PolicyTable(
+            Runtime.Version controllerVersion,
+            JVMVersionComparator.ComparisonMode comparisonMode,
+            List<CompatibilityPolicy> policies) {
+        this.controllerVersion = controllerVersion;
+        this.comparisonMode = comparisonMode;
+        boolean labels = false;
+        for (CompatibilityPolicy policy : policies) {
+            try {
+                CompatibilityPolicy.Rule rule = policy.compile();
+                rules.add(rule);
+                labels |= rule.usesLabels();
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.WARNING, "Ignoring invalid compatibility policy " + policy, e);
+            }
+        }
+        this.usesLabels = labels;
+    }
+
+    /**
+     * Whether the given version is acceptable on the given node.
+     *
+     * @throws IllegalArgumentException If the version cannot be parsed.
+     */
+    boolean isCompatible(@NonNull String agentVersion, @CheckForNull Node node) {
+        Set<LabelAtom> labels = usesLabels && node != null ? labelsOf(node) : Collections.emptySet();
+        String key = usesLabels ? agentVersion + " " + labels : agentVersion;
+        Boolean compatible = decisions.get(key);
+        if (compatible == null) {
+            compatible = decide(Runtime.Version.parse(agentVersion), labels);
+            if (decisions.size() >= MAX_DECISIONS) {
+                decisions.clear();
+            }
+            decisions.put(key, compatible);
+        }
+        return compatible;
+    }
+
+    private boolean decide(Runtime.Version agentVersion, Set<LabelAtom> labels) {
+        for (CompatibilityPolicy.Rule rule : rules) {
+            CompatibilityPolicy.Decision decision = rule.decide(agentVersion, labels);
+            if (decision != CompatibilityPolicy.Decision.ABSTAIN) {
+                return decision == CompatibilityPolicy.Decision.ALLOW;
+            }
+        }
+        return new JVMVersionComparator(controllerVersion, agentVersion, comparisonMode).isCompatible();
+    }
+
+    /**
+     * The labels of the node, sorted, and excluding its own name which would make every node distinct.
+     */
+    private static Set<LabelAtom> labelsOf(Node node) {
+        Set<LabelAtom> labels = new TreeSet<>(node.getAssignedLabels());
+        labels.remove(node.getSelfLabel());
+        return labels;
+    }
+
+    int size() {
+        return decisions.size();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Rolling window of the round-trip times of the version probes sent to one agent.
+ */
+final class ProbeLatency {
+
+    static final int WINDOW = 16;
+
+    private final long[] samples = new long[WINDOW];
+
+    private int count;
+
+    private int next;
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % WINDOW;
+        count = Math.min(count + 1, WINDOW);
+    }
+
+    synchronized Stats getStats() {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Stats(sorted);
+    }
+
+    /**
+     * Minimum, median and 95th percentile of the round-trip times of the window.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class Stats {
+
+        private final int samples;
+
+        private final double min;
+
+        private final double median;
+
+        private final double p95;
+
+        Stats(long[] sorted) {
+            samples = sorted.length;
+            if (samples == 0) {
+                min = median = p95 = 0;
+            } else {
+                min = toMillis(sorted[0]);
+                median = toMillis(sorted[(samples - 1) / 2]);
+                p95 = toMillis(sorted[(int) Math.ceil(samples * 0.95) - 1]);
+            }
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        @Exported
+        public int getSamples() {
+            return samples;
+        }
+
+        @Exported
+        public double getMin() {
+            return min;
+        }
+
+        @Exported
+        public double getMedian() {
+            return median;
+        }
+
+        @Exported
+        public double getP95() {
+            return p95;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%.1f / %.1f / %.1f ms", min, median, p95);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Computer;
+import hudson.node_monitors.AbstractNodeMonitorDescriptor;
+import hudson.node_monitors.NodeMonitor;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Round-trip time of the version probes sent by the JVM and remoting version monitors.
+ *
+ * <p>This monitor never probes the agents itself: the version probes are channel round trips already, their timing
+ * comes for free.
+ */
+public class ProbeLatencyMonitor extends NodeMonitor {
+
+    @DataBoundConstructor
+    public ProbeLatencyMonitor() {}
+
+    @SuppressWarnings("unused") // jelly
+    public String toHtml(ProbeLatency.Stats stats) {
+        if (stats == null || stats.getSamples() == 0) {
+            return "N/A";
+        }
+        return stats.toString();
+    }
+
+    /**
+     * Records the round-trip time of a version probe sent to the given computer.
+     */
+    static void record(@NonNull Computer c, long nanos) {
+        DescriptorImpl descriptor = ExtensionList.lookupSingleton(DescriptorImpl.class);
+        descriptor.latencies.computeIfAbsent(c, ProbeLatency::new).record(nanos);
+    }
+
+    @Extension
+    @Symbol("probeLatency")
+    public static class DescriptorImpl extends AbstractNodeMonitorDescriptor<ProbeLatency.Stats> {
+
+        private final transient AgentCache<ProbeLatency> latencies = new AgentCache<>("probeLatency.latencies");
+
+        @Override
+        protected ProbeLatency.Stats monitor(Computer c) {
+            ProbeLatency latency = latencies.get(c);
+            return latency == null ? null : latency.getStats();
+        }
+
+        /**
+         * Always reflects the latest probes, rather than the result of the last cycle of this monitor.
+         */
+        @Override
+        public ProbeLatency.Stats get(Computer c) {
+            return monitor(c);
+        }
+
+        AgentCache<ProbeLatency> getLatencies() {
+            return latencies;
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.ProbeLatencyMonitor_DisplayName();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import jenkins.model.Jenkins;
+
+/**
+ * Brings back online the agents held offline by the version monitors whose cached version is now acceptable.
+ */
+@Extension
+public class ReleaseVersionHeldAgentsCommand extends CLICommand {
+
+    @Override
+    public String getShortDescription() {
+        return Messages.ReleaseVersionHeldAgentsCommand_ShortDescription();
+    }
+
+    @Override
+    protected int run() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        AgentRelease release = AgentRelease.run();
+        for (String name : release.getReleased()) {
+            stdout.println("Released " + name);
+        }
+        for (String name : release.getHeld()) {
+            stdout.println("Still incompatible " + name);
+        }
+        for (String name : release.getUnknown()) {
+            stdout.println("Unknown version " + name);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011, Seiji Sogabe
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import hudson.util.VersionNumber;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Responsible for controller and agent remoting versions comparisons, and notions of "compatibility".
+ */
+class RemotingVersionComparator {
+
+    /**
+     * Parsed remoting versions. A fleet only runs a handful of distinct versions, the bound only protects against
+     * agents reporting garbage.
+     */
+    private static final Map<String, VersionNumber> PARSED = new ConcurrentHashMap<>();
+
+    private static final int MAX_PARSED = 256;
+
+    private final boolean compatible;
+
+    RemotingVersionComparator(String controllerVersion, String agentVersion, ComparisonMode comparisonMode) {
+        if (ComparisonMode.MINIMUM_VERSION == comparisonMode) {
+            compatible = parse(agentVersion).compareTo(parse(controllerVersion)) >= 0;
+        } else if (ComparisonMode.SAME_MAJOR == comparisonMode) {
+            compatible = parse(agentVersion).getDigitAt(0) == parse(controllerVersion).getDigitAt(0);
+        } else {
+            compatible = controllerVersion.equals(agentVersion);
+        }
+        MonitoringEvents.evaluation(String.valueOf(comparisonMode), controllerVersion, agentVersion, compatible);
+    }
+
+    static VersionNumber parse(String version) {
+        VersionNumber parsed = PARSED.get(version);
+        if (parsed == null) {
+            if (PARSED.size() >= MAX_PARSED) {
+                PARSED.clear();
+            }
+            parsed = new VersionNumber(version);
+            PARSED.put(version, parsed);
+        }
+        return parsed;
+    }
+
+    public boolean isCompatible() {
+        return compatible;
+    }
+
+    public boolean isNotCompatible() {
+        return !isCompatible();
+    }
+
+    public enum ComparisonMode {
+        EXACT_MATCH(Messages.VersionMonitor_EXACT_MATCH()),
+        MINIMUM_VERSION(Messages.VersionMonitor_MINIMUM_VERSION()),
+        SAME_MAJOR(Messages.VersionMonitor_SAME_MAJOR());
+
+        private String description;
+
+        ComparisonMode(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+}
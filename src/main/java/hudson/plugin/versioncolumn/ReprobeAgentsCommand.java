@@ -0,0 +1,75 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import hudson.model.Computer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jenkins.model.Jenkins;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+
+/**
+ * Probes the JVM and remoting versions of selected agents, printing each result as soon as it is known.
+ */
+@Extension
+public class ReprobeAgentsCommand extends CLICommand {
+
+    @Argument(metaVar = "NODE", usage = "Names of the agents to probe.", multiValued = true)
+    public List<String> nodes = new ArrayList<>();
+
+    @Option(name = "-label", metaVar = "EXPRESSION", usage = "Also probe the agents matching this label expression.")
+    public String label;
+
+    @Option(name = "-timeout", metaVar = "SECONDS", usage = "Time to wait for the agents to answer.")
+    public long timeout = AgentReprobe.DEFAULT_TIMEOUT_SECONDS;
+
+    @Override
+    public String getShortDescription() {
+        return Messages.ReprobeAgentsCommand_ShortDescription();
+    }
+
+    @Override
+    protected int run() throws Exception {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        Set<Computer> computers = AgentReprobe.select(nodes, label);
+        if (computers.isEmpty()) {
+            throw new IllegalArgumentException("No agent selected");
+        }
+        AtomicInteger failures = new AtomicInteger();
+        AgentReprobe.run(computers, TimeUnit.SECONDS.toMillis(timeout), result -> {
+            if (result.getOutcome() != AgentReprobe.Outcome.OK) {
+                failures.incrementAndGet();
+            }
+            stdout.println(result);
+            stdout.flush();
+        });
+        return failures.get() == 0 ? 0 : 1;
+    }
+}
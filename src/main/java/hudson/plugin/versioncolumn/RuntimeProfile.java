@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import java.io.Serializable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Capacity planning data of an agent JVM. It only changes when the agent reconnects.
+ */
+@ExportedBean(defaultVisibility = 2)
+public final class RuntimeProfile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long maxHeapBytes;
+
+    private final int availableProcessors;
+
+    private final List<String> garbageCollectors;
+
+    private final String arch;
+
+    private final String os;
+
+    RuntimeProfile(long maxHeapBytes, int availableProcessors, List<String> garbageCollectors, String arch, String os) {
+        this.maxHeapBytes = maxHeapBytes;
+        this.availableProcessors = availableProcessors;
+        this.garbageCollectors = Collections.unmodifiableList(new ArrayList<>(garbageCollectors));
+        this.arch = arch;
+        this.os = os;
+    }
+
+    /**
+     * Collects the profile of the current JVM.
+     */
+    static RuntimeProfile collect() {
+        List<String> collectors = new ArrayList<>();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collectors.add(gc.getName());
+        }
+        return new RuntimeProfile(
+                Runtime.getRuntime().maxMemory(),
+                Runtime.getRuntime().availableProcessors(),
+                collectors,
+                System.getProperty("os.arch"),
+                System.getProperty("os.name"));
+    }
+
+    @Exported
+    public long getMaxHeapBytes() {
+        return maxHeapBytes;
+    }
+
+    @Exported
+    public int getAvailableProcessors() {
+        return availableProcessors;
+    }
+
+    @Exported
+    public List<String> getGarbageCollectors() {
+        return garbageCollectors;
+    }
+
+    /**
+     * The family of the garbage collector in use, for example {@code G1}, {@code ZGC} or {@code Parallel}.
+     */
+    @Exported
+    public String getCollector() {
+        for (String name : garbageCollectors) {
+            if (name.startsWith("G1")) {
+                return "G1";
+            } else if (name.startsWith("ZGC")) {
+                return "ZGC";
+            } else if (name.startsWith("Shenandoah")) {
+                return "Shenandoah";
+            } else if (name.startsWith("PS ")) {
+                return "Parallel";
+            } else if (name.equals("ConcurrentMarkSweep")) {
+                return "CMS";
+            } else if (name.equals("MarkSweepCompact")) {
+                return "Serial";
+            }
+        }
+        return garbageCollectors.isEmpty() ? "N/A" : garbageCollectors.get(0);
+    }
+
+    @Exported
+    public String getArch() {
+        return arch;
+    }
+
+    @Exported
+    public String getOs() {
+        return os;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                Locale.ROOT,
+                "%d CPUs, %.1f GB heap, %s, %s",
+                availableProcessors,
+                maxHeapBytes / (double) (1L << 30),
+                getCollector(),
+                arch);
+    }
+}
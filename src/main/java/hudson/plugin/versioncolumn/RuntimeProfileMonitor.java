@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Computer;
+import hudson.model.ComputerSet;
+import hudson.node_monitors.AbstractNodeMonitorDescriptor;
+import hudson.node_monitors.NodeMonitor;
+import hudson.remoting.VirtualChannel;
+import java.lang.ref.WeakReference;
+import jenkins.model.Jenkins;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Heap, processors, garbage collector and architecture of the agent JVMs.
+ *
+ * <p>Like the {@link ProbeLatencyMonitor}, this monitor never probes the agents itself: the profile is collected by
+ * the version probe, once per connection of each agent, since it cannot change until the agent reconnects.
+ */
+public class RuntimeProfileMonitor extends NodeMonitor {
+
+    @DataBoundConstructor
+    public RuntimeProfileMonitor() {}
+
+    @SuppressWarnings("unused") // jelly
+    public String toHtml(RuntimeProfile profile) {
+        if (profile == null) {
+            return "N/A";
+        }
+        return profile.toString();
+    }
+
+    /**
+     * Whether the next version probe sent to the given computer must also collect its runtime profile, that is when
+     * this monitor is enabled and the computer has not been profiled since it connected.
+     */
+    static boolean needsProfile(@NonNull Computer c) {
+        Jenkins j = Jenkins.getInstanceOrNull();
+        if (j == null) {
+            return false;
+        }
+        DescriptorImpl descriptor = j.getDescriptorByType(DescriptorImpl.class);
+        if (descriptor == null || ComputerSet.getMonitors().get(descriptor) == null) {
+            return false;
+        }
+        Profiled profiled = descriptor.profiles.get(c);
+        return profiled == null || profiled.channel.get() != c.getChannel();
+    }
+
+    /**
+     * Records the runtime profile collected by a version probe sent to the given computer.
+     */
+    static void record(@NonNull Computer c, @NonNull RuntimeProfile profile) {
+        DescriptorImpl descriptor = ExtensionList.lookupSingleton(DescriptorImpl.class);
+        descriptor.profiles.put(c, new Profiled(profile, c.getChannel()));
+    }
+
+    /**
+     * A profile, and the channel of the connection it was collected from.
+     */
+    private static final class Profiled {
+
+        private final RuntimeProfile profile;
+
+        private final WeakReference<VirtualChannel> channel;
+
+        Profiled(RuntimeProfile profile, VirtualChannel channel) {
+            this.profile = profile;
+            this.channel = new WeakReference<>(channel);
+        }
+    }
+
+    @Extension
+    @Symbol("runtimeProfile")
+    public static class DescriptorImpl extends AbstractNodeMonitorDescriptor<RuntimeProfile> {
+
+        private final transient AgentCache<Profiled> profiles = new AgentCache<>("runtimeProfile.profiles");
+
+        @Override
+        protected RuntimeProfile monitor(Computer c) {
+            Profiled profiled = profiles.get(c);
+            return profiled == null ? null : profiled.profile;
+        }
+
+        /**
+         * Always reflects the latest probes, rather than the result of the last cycle of this monitor.
+         */
+        @Override
+        public RuntimeProfile get(Computer c) {
+            return monitor(c);
+        }
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.RuntimeProfileMonitor_DisplayName();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.remoting.VirtualChannel;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.SystemProperties;
+
+/**
+ * JVM versions shared by several controllers connected to the same static hosts, through a directory on shared
+ * storage, so that each host is probed for its JVM version once per freshness window rather than once per controller.
+ *
+ * <p>Results are keyed by the identity of the host, as reported by the agent on the first probe after it connects:
+ * its host name, machine id and Java home, which determine the JVM running the agent. The remoting version belongs to
+ * each agent process rather than to its host, so it is not shared and is always probed by each controller.
+ *
+ * <p>Each host has its own file, replaced atomically, so that concurrent controllers never read a partial result. The
+ * registry is disabled unless the {@code hudson.plugin.versioncolumn.SharedRegistry.directory} system property is
+ * set. Any failure to read or write the registry falls back to probing the agents.
+ */
+final class SharedRegistry {
+
+    private static final Logger LOGGER = Logger.getLogger(SharedRegistry.class.getName());
+
+    static final long FRESHNESS_MILLIS = TimeUnit.MINUTES.toMillis(
+            SystemProperties.getLong(SharedRegistry.class.getName() + ".freshnessMinutes", 60L));
+
+    /**
+     * A registry that never shares anything.
+     */
+    static final SharedRegistry NONE = new SharedRegistry(null, 0, System::currentTimeMillis);
+
+    private static final SharedRegistry INSTANCE = create();
+
+    @CheckForNull
+    private final Path directory;
+
+    private final long freshnessMillis;
+
+    private final LongSupplier clock;
+
+    private final AgentCache<Identified> identities = new AgentCache<>("shared.identities");
+
+    SharedRegistry(@CheckForNull Path directory, long freshnessMillis, LongSupplier clock) {
+        this.directory = directory;
+        this.freshnessMillis = freshnessMillis;
+        this.clock = clock;
+    }
+
+    private static SharedRegistry create() {
+        String directory =
+                Util.fixEmptyAndTrim(SystemProperties.getString(SharedRegistry.class.getName() + ".directory"));
+        if (directory == null) {
+            return NONE;
+        }
+        LOGGER.info(() -> "Sharing the agent versions through " + directory);
+        return new SharedRegistry(Paths.get(directory), FRESHNESS_MILLIS, System::currentTimeMillis);
+    }
+
+    static SharedRegistry get() {
+        return INSTANCE;
+    }
+
+    boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Whether the next probe sent to the given computer must also collect the identity of its host, that is when the
+     * registry is enabled and the host has not been identified since the agent connected.
+     */
+    boolean needsIdentity(@NonNull Computer c) {
+        return isEnabled() && identity(c) == null;
+    }
+
+    /**
+     * Reads the JVM version recorded for the host of the given computer by any controller within the freshness window.
+     *
+     * @return {@code null} if the host is not identified yet, or has no fresh result.
+     */
+    @CheckForNull
+    Record lookup(@NonNull Computer c) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String identity = identity(c);
+        if (identity == null) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file(identity))) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.FINE, "Failed to read the shared versions of " + c.getName(), e);
+            return null;
+        }
+        String jvm = properties.getProperty("jvm");
+        long timestamp;
+        try {
+            timestamp = Long.parseLong(properties.getProperty("timestamp", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (jvm == null || clock.getAsLong() - timestamp >= freshnessMillis) {
+            return null;
+        }
+        return new Record(jvm, timestamp);
+    }
+
+    /**
+     * Shares the JVM version probed on the given computer, remembering the identity of its host if reported.
+     */
+    void store(@NonNull Computer c, @NonNull AgentVersions versions) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (versions.getHost() != null) {
+            identities.put(c, new Identified(versions.getHost(), c.getChannel()));
+        }
+        String identity = identity(c);
+        if (identity == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty("host", identity);
+        properties.setProperty("jvm", versions.getJvm());
+        properties.setProperty("timestamp", Long.toString(clock.getAsLong()));
+        Path file = file(identity);
+        try {
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(tmp)) {
+                    properties.store(out, null);
+                }
+                try {
+                    Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to share the versions of " + c.getName(), e);
+        }
+    }
+
+    /**
+     * The identity of the host of the given computer, if reported since the agent connected.
+     */
+    @CheckForNull
+    private String identity(Computer c) {
+        Identified identified = identities.get(c);
+        if (identified == null || identified.channel.get() != c.getChannel()) {
+            return null;
+        }
+        return identified.host;
+    }
+
+    private Path file(String identity) {
+        return directory.resolve(Util.getDigestOf(identity) + ".properties");
+    }
+
+    /**
+     * A JVM version read from the registry, and when it was probed.
+     */
+    static final class Record {
+
+        private final String jvm;
+
+        private final long timestamp;
+
+        Record(String jvm, long timestamp) {
+            this.jvm = jvm;
+            this.timestamp = timestamp;
+        }
+
+        String getJvm() {
+            return jvm;
+        }
+
+        long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    /**
+     * The identity of a host, and the channel of the connection it was reported on.
+     */
+    private static final class Identified {
+
+        private final String host;
+
+        private final WeakReference<VirtualChannel> channel;
+
+        Identified(String host, VirtualChannel channel) {
+            this.host = host;
+            this.channel = new WeakReference<>(channel);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Computer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import jenkins.util.SystemProperties;
+
+/**
+ * Single probe shared by the JVM and remoting version monitors.
+ *
+ * <p>Core schedules each node monitor on its own, so both version monitors start a cycle at about the same time.
+ * Whichever comes first collects both versions of every agent it needs in one round trip per agent; the other one
+ * waits for it and reads its slice of the same results, so that both monitors see a consistent snapshot of the fleet
+ * and each agent is only probed once per period.
+ *
+ * <p>Results are shared for {@link #FRESHNESS_MILLIS}, which is short enough for the <em>Refresh status</em> button of
+ * the nodes page to always probe the agents again.
+ *
+ * <p>The same round trip also collects the {@link RuntimeProfile} of the agents that the {@link RuntimeProfileMonitor}
+ * has not profiled since they connected.
+ *
+ * <p>When a {@link SharedRegistry} is configured, the JVM version of agents whose host was recently probed by another
+ * controller is read from the registry, unless they still need to be profiled, and the results of this controller are
+ * shared with the others. Their remoting version is still probed, since it belongs to the agent process.
+ */
+final class SharedVersionProbe {
+
+    static final long FRESHNESS_MILLIS = TimeUnit.SECONDS.toMillis(
+            SystemProperties.getLong(SharedVersionProbe.class.getName() + ".freshnessSeconds", 60L));
+
+    static final String MONITOR = "shared";
+
+    private static final SharedVersionProbe INSTANCE =
+            new SharedVersionProbe(FRESHNESS_MILLIS, System::currentTimeMillis, SharedRegistry.get());
+
+    private final long freshnessMillis;
+
+    private final LongSupplier clock;
+
+    private final SharedRegistry registry;
+
+    private final AgentCache<Entry> results = new AgentCache<>("shared.results");
+
+    /**
+     * The computers being probed, and the answer each of them will give.
+     */
+    private final Map<Computer, CompletableFuture<AgentVersions>> inFlight = new HashMap<>();
+
+    SharedVersionProbe(long freshnessMillis, LongSupplier clock) {
+        this(freshnessMillis, clock, SharedRegistry.NONE);
+    }
+
+    SharedVersionProbe(long freshnessMillis, LongSupplier clock, SharedRegistry registry) {
+        this.freshnessMillis = freshnessMillis;
+        this.clock = clock;
+        this.registry = registry;
+    }
+
+    static SharedVersionProbe get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Reads a slice of the versions of the given computers, probing the ones without fresh results.
+     *
+     * <p>The lock is only held to claim the computers to probe: a computer already being probed by another caller is
+     * not probed again, and its answer is awaited outside of the lock instead.
+     *
+     * @param slice {@link AgentVersions#getJvm()} or {@link AgentVersions#getRemoting()}.
+     * @return The versions of the computers that answered.
+     */
+    @NonNull
+    Map<Computer, String> probe(
+            Collection<Computer> computers, long timeoutMillis, Function<AgentVersions, String> slice)
+            throws InterruptedException {
+        Map<Computer, String> versions = new HashMap<>();
+        List<Computer> candidates = new ArrayList<>();
+        for (Computer c : computers) {
+            String value = fresh(c, slice);
+            if (value == null) {
+                // the runtime profile is not shared, so an agent not profiled yet is probed even if its host was
+                SharedRegistry.Record shared = RuntimeProfileMonitor.needsProfile(c) ? null : registry.lookup(c);
+                if (shared != null) {
+                    // the remoting version belongs to the agent process, so only the JVM version is shared
+                    AgentVersions jvm = new AgentVersions(shared.getJvm(), null, null);
+                    results.put(c, new Entry(jvm, shared.getTimestamp()));
+                    value = slice.apply(jvm);
+                }
+            }
+            if (value != null) {
+                versions.put(c, value);
+            } else {
+                candidates.add(c);
+            }
+        }
+        Map<Computer, CompletableFuture<AgentVersions>> claimed = new LinkedHashMap<>();
+        Map<Computer, CompletableFuture<AgentVersions>> joined = new LinkedHashMap<>();
+        synchronized (inFlight) {
+            for (Computer c : candidates) {
+                // another caller may have probed it since it was found stale
+                String value = fresh(c, slice);
+                if (value != null) {
+                    versions.put(c, value);
+                    continue;
+                }
+                CompletableFuture<AgentVersions> pending = inFlight.get(c);
+                if (pending != null) {
+                    joined.put(c, pending);
+                } else {
+                    pending = new CompletableFuture<>();
+                    inFlight.put(c, pending);
+                    claimed.put(c, pending);
+                }
+            }
+        }
+        try {
+            VersionProbes.probe(
+                    MONITOR,
+                    claimed.keySet(),
+                    c -> new VersionsCallable(RuntimeProfileMonitor.needsProfile(c), registry.needsIdentity(c)),
+                    timeoutMillis,
+                    (c, value, nanos) -> {
+                        record(c, value);
+                        versions.put(c, slice.apply(value));
+                        claimed.get(c).complete(value);
+                    });
+        } finally {
+            synchronized (inFlight) {
+                for (Map.Entry<Computer, CompletableFuture<AgentVersions>> e : claimed.entrySet()) {
+                    inFlight.remove(e.getKey(), e.getValue());
+                    // computers that did not answer
+                    e.getValue().complete(null);
+                }
+            }
+        }
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Map.Entry<Computer, CompletableFuture<AgentVersions>> e : joined.entrySet()) {
+            try {
+                AgentVersions value = e.getValue().get(Math.max(0, end - System.nanoTime()), TimeUnit.NANOSECONDS);
+                String version = value == null ? null : slice.apply(value);
+                if (version != null) {
+                    versions.put(e.getKey(), version);
+                }
+            } catch (ExecutionException | TimeoutException x) {
+                // the other caller did not collect it in time either
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * The slice of the fresh results of the given computer.
+     *
+     * @return {@code null} if there are none, or they lack that slice.
+     */
+    @CheckForNull
+    private String fresh(Computer c, Function<AgentVersions, String> slice) {
+        Entry entry = results.get(c);
+        if (entry == null || clock.getAsLong() - entry.timestamp >= freshnessMillis) {
+            return null;
+        }
+        return slice.apply(entry.versions);
+    }
+
+    /**
+     * Shares versions collected outside of this probe.
+     */
+    void record(@NonNull Computer c, @NonNull AgentVersions versions) {
+        results.put(c, new Entry(versions, clock.getAsLong()));
+        registry.store(c, versions);
+        if (versions.getProfile() != null) {
+            RuntimeProfileMonitor.record(c, versions.getProfile());
+        }
+    }
+
+    /**
+     * When the versions of the given computer were last collected, in milliseconds since the epoch.
+     *
+     * @return {@code -1} if they were never collected, or have expired.
+     */
+    long lastProbed(@NonNull Computer c) {
+        Entry entry = results.get(c);
+        return entry == null ? -1 : entry.timestamp;
+    }
+
+    private static final class Entry {
+
+        private final AgentVersions versions;
+
+        private final long timestamp;
+
+        Entry(AgentVersions versions, long timestamp) {
+            this.versions = versions;
+            this.timestamp = timestamp;
+        }
+    }
+}
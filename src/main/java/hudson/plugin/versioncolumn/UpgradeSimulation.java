@@ -0,0 +1,188 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Computer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Dry run of the version monitors against a hypothetical controller.
+ *
+ * <p>Only the agent versions cached by the monitors are used: nothing is probed and no agent changes state. Each
+ * distinct agent version is compared once per {@link JVMVersionComparator.ComparisonMode} and
+ * {@link RemotingVersionComparator.ComparisonMode}, whatever the number of agents running it.
+ */
+public final class UpgradeSimulation {
+
+    private final Runtime.Version controllerVersion;
+
+    @CheckForNull
+    private final String remotingVersion;
+
+    private final Map<JVMVersionComparator.ComparisonMode, List<String>> jvmOffline =
+            new EnumMap<>(JVMVersionComparator.ComparisonMode.class);
+
+    private final Map<RemotingVersionComparator.ComparisonMode, List<String>> remotingOffline =
+            new EnumMap<>(RemotingVersionComparator.ComparisonMode.class);
+
+    private int agents;
+
+    private long durationMillis;
+
+    private UpgradeSimulation(Runtime.Version controllerVersion, @CheckForNull String remotingVersion) {
+        this.controllerVersion = controllerVersion;
+        this.remotingVersion = remotingVersion;
+    }
+
+    /**
+     * Runs the simulation against the agents currently known by Jenkins.
+     *
+     * @param controllerVersion The controller JVM version to simulate.
+     * @param remotingVersion The controller remoting version to simulate, or {@code null} to skip the remoting check.
+     */
+    static UpgradeSimulation run(@NonNull Runtime.Version controllerVersion, @CheckForNull String remotingVersion) {
+        Jenkins jenkins = Jenkins.get();
+        return run(
+                controllerVersion,
+                remotingVersion,
+                jenkins.getComputers(),
+                jenkins.getDescriptorByType(JVMVersionMonitor.JvmVersionDescriptor.class)
+                        .getVersions(),
+                jenkins.getDescriptorByType(VersionMonitor.DescriptorImpl.class).getVersions());
+    }
+
+    static UpgradeSimulation run(
+            @NonNull Runtime.Version controllerVersion,
+            @CheckForNull String remotingVersion,
+            Computer[] computers,
+            AgentCache<String> jvmVersions,
+            AgentCache<String> remotingVersions) {
+        long start = System.nanoTime();
+        UpgradeSimulation simulation = new UpgradeSimulation(controllerVersion, remotingVersion);
+        Map<String, List<String>> agentsByJvmVersion = new HashMap<>();
+        Map<String, List<String>> agentsByRemotingVersion = new HashMap<>();
+        for (Computer c : computers) {
+            if (c instanceof Jenkins.MasterComputer) {
+                // the built-in node runs the controller JVM, it is upgraded with it
+                continue;
+            }
+            simulation.agents++;
+            String jvmVersion = jvmVersions.get(c);
+            if (jvmVersion != null) {
+                agentsByJvmVersion
+                        .computeIfAbsent(jvmVersion, v -> new ArrayList<>())
+                        .add(c.getName());
+            }
+            String agentRemotingVersion = remotingVersions.get(c);
+            if (agentRemotingVersion != null) {
+                agentsByRemotingVersion
+                        .computeIfAbsent(agentRemotingVersion, v -> new ArrayList<>())
+                        .add(c.getName());
+            }
+        }
+
+        for (JVMVersionComparator.ComparisonMode mode : JVMVersionComparator.ComparisonMode.values()) {
+            TreeSet<String> offline = new TreeSet<>();
+            for (Map.Entry<String, List<String>> e : agentsByJvmVersion.entrySet()) {
+                Runtime.Version agentVersion;
+                try {
+                    agentVersion = Runtime.Version.parse(e.getKey());
+                } catch (IllegalArgumentException x) {
+                    continue;
+                }
+                if (new JVMVersionComparator(controllerVersion, agentVersion, mode).isNotCompatible()) {
+                    offline.addAll(e.getValue());
+                }
+            }
+            simulation.jvmOffline.put(mode, new ArrayList<>(offline));
+        }
+
+        if (remotingVersion != null) {
+            for (RemotingVersionComparator.ComparisonMode mode : RemotingVersionComparator.ComparisonMode.values()) {
+                TreeSet<String> offline = new TreeSet<>();
+                for (Map.Entry<String, List<String>> e : agentsByRemotingVersion.entrySet()) {
+                    if (new RemotingVersionComparator(remotingVersion, e.getKey(), mode).isNotCompatible()) {
+                        offline.addAll(e.getValue());
+                    }
+                }
+                simulation.remotingOffline.put(mode, new ArrayList<>(offline));
+            }
+        }
+        simulation.durationMillis = (System.nanoTime() - start) / 1_000_000;
+        return simulation;
+    }
+
+    public String getControllerVersion() {
+        return controllerVersion.toString();
+    }
+
+    @CheckForNull
+    public String getRemotingVersion() {
+        return remotingVersion;
+    }
+
+    public int getAgents() {
+        return agents;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public Map<JVMVersionComparator.ComparisonMode, List<String>> getJvmOffline() {
+        return Collections.unmodifiableMap(jvmOffline);
+    }
+
+    public Map<RemotingVersionComparator.ComparisonMode, List<String>> getRemotingOffline() {
+        return Collections.unmodifiableMap(remotingOffline);
+    }
+
+    JSONObject toJSON() {
+        JSONObject jvm = new JSONObject();
+        jvmOffline.forEach((mode, names) -> jvm.put(mode.name(), JSONArray.fromObject(names)));
+        JSONObject remoting = new JSONObject();
+        remotingOffline.forEach((mode, names) -> remoting.put(mode.name(), JSONArray.fromObject(names)));
+        JSONObject json = new JSONObject();
+        json.put("controllerVersion", getControllerVersion());
+        json.put("agents", agents);
+        json.put("durationMillis", durationMillis);
+        json.put("jvmOffline", jvm);
+        if (remotingVersion != null) {
+            json.put("remotingVersion", remotingVersion);
+            json.put("remotingOffline", remoting);
+        }
+        return json;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Computer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import net.sf.json.JSONObject;
+
+/**
+ * Bounded history of the events of the version monitors, which clients can wait on.
+ *
+ * <p>Events are numbered from 1. A client that falls more than {@link #CAPACITY} events behind misses the oldest
+ * ones, which it can detect from a gap in the numbers.
+ */
+final class VersionEvents {
+
+    static final int CAPACITY = 1024;
+
+    private static final VersionEvents INSTANCE = new VersionEvents(CAPACITY);
+
+    private final Event[] events;
+
+    private long last;
+
+    VersionEvents(int capacity) {
+        events = new Event[capacity];
+    }
+
+    static VersionEvents get() {
+        return INSTANCE;
+    }
+
+    static void version(String monitor, @NonNull Computer c, String version) {
+        INSTANCE.publish(new Event(Type.VERSION, monitor, c.getName(), version, null));
+    }
+
+    static void verdict(String monitor, @NonNull Computer c, String version, boolean compatible) {
+        INSTANCE.publish(new Event(Type.VERDICT, monitor, c.getName(), version, compatible));
+    }
+
+    static void transition(String monitor, @NonNull Computer c, boolean offline) {
+        INSTANCE.publish(new Event(offline ? Type.OFFLINE : Type.ONLINE, monitor, c.getName(), null, null));
+    }
+
+    synchronized void publish(Event event) {
+        event.id = ++last;
+        events[(int) (event.id % events.length)] = event;
+        notifyAll();
+    }
+
+    /**
+     * The number of the last published event, {@code 0} if none.
+     */
+    synchronized long getLast() {
+        return last;
+    }
+
+    /**
+     * The events published after the given one that are still in the history, oldest first.
+     */
+    synchronized List<Event> since(long id) {
+        long first = Math.max(id, last - events.length) + 1;
+        List<Event> result = new ArrayList<>();
+        for (long i = first; i <= last; i++) {
+            result.add(events[(int) (i % events.length)]);
+        }
+        return result;
+    }
+
+    /**
+     * Waits until events are published after the given one, or the timeout elapses.
+     *
+     * @return The new events, empty if the timeout elapsed.
+     */
+    synchronized List<Event> await(long id, long timeoutMillis) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long remaining;
+        while (last <= id && (remaining = end - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return since(id);
+    }
+
+    enum Type {
+        /** A new version was seen on an agent. */
+        VERSION,
+        /** The compatibility of an agent changed. */
+        VERDICT,
+        /** An agent was taken offline because of its version. */
+        OFFLINE,
+        /** An agent taken offline because of its version was brought back online. */
+        ONLINE
+    }
+
+    static final class Event {
+
+        private long id;
+
+        private final long timestamp = System.currentTimeMillis();
+
+        private final Type type;
+
+        private final String monitor;
+
+        private final String node;
+
+        @CheckForNull
+        private final String version;
+
+        @CheckForNull
+        private final Boolean compatible;
+
+        Event(Type type, String monitor, String node, String version, Boolean compatible) {
+            this.type = type;
+            this.monitor = monitor;
+            this.node = node;
+            this.version = version;
+            this.compatible = compatible;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        Type getType() {
+            return type;
+        }
+
+        String getNode() {
+            return node;
+        }
+
+        /**
+         * The name of the event in a server-sent events stream.
+         */
+        String getName() {
+            return type.name().toLowerCase(Locale.ROOT);
+        }
+
+        JSONObject toJSON() {
+            JSONObject json = new JSONObject();
+            json.put("id", id);
+            json.put("timestamp", timestamp);
+            json.put("type", getName());
+            json.put("monitor", monitor);
+            json.put("node", node);
+            if (version != null) {
+                json.put("version", version);
+            }
+            if (compatible != null) {
+                json.put("compatible", compatible);
+            }
+            return json;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import hudson.Extension;
+import hudson.model.RootAction;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+import org.kohsuke.stapler.verb.GET;
+
+/**
+ * Pushes the events of the version monitors to dashboards, so that they do not need to poll the whole node list.
+ *
+ * <ul>
+ *   <li>{@code stream} is a server-sent events stream, closed after {@link #STREAM_MILLIS}; browsers reconnect
+ *       automatically and resume from the {@code Last-Event-ID} header.
+ *   <li>{@code poll} is a long-polling alternative, answering as soon as events are published after {@code since}.
+ * </ul>
+ *
+ * <p>Both hold a request thread while they wait, so at most {@link #MAX_WAITERS} clients wait at a time. Other streams
+ * are sent the events already published and closed, and other polls are answered with a 503 status; both tell the
+ * client to come back after {@link #RETRY_SECONDS}.
+ */
+@Extension
+public class VersionEventsAction implements RootAction {
+
+    static final long STREAM_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    static final long KEEP_ALIVE_MILLIS = TimeUnit.SECONDS.toMillis(15);
+
+    static final int MAX_POLL_SECONDS = 60;
+
+    static final int MAX_WAITERS =
+            SystemProperties.getInteger(VersionEventsAction.class.getName() + ".maxWaiters", 10);
+
+    static final int RETRY_SECONDS = 5;
+
+    /**
+     * The request threads waiting for events.
+     */
+    private final Semaphore waiters;
+
+    public VersionEventsAction() {
+        this(MAX_WAITERS);
+    }
+
+    VersionEventsAction(int maxWaiters) {
+        this.waiters = new Semaphore(maxWaiters);
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return "versionMonitorEvents";
+    }
+
+    /**
+     * Waits up to {@code timeout} seconds for events published after {@code since}.
+     */
+    @GET
+    public HttpResponse doPoll(@QueryParameter long since, @QueryParameter int timeout, StaplerResponse2 rsp)
+            throws InterruptedException {
+        Jenkins.get().checkPermission(Jenkins.SYSTEM_READ);
+        if (!waiters.tryAcquire()) {
+            rsp.setHeader("Retry-After", String.valueOf(RETRY_SECONDS));
+            return HttpResponses.errorWithoutStack(
+                    HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many clients are waiting for events");
+        }
+        int seconds = timeout <= 0 ? 30 : Math.min(timeout, MAX_POLL_SECONDS);
+        VersionEvents bus = VersionEvents.get();
+        long from = sameRun(since, bus.getLast());
+        List<VersionEvents.Event> events;
+        try {
+            events = bus.await(from, TimeUnit.SECONDS.toMillis(seconds));
+        } finally {
+            waiters.release();
+        }
+        JSONArray array = new JSONArray();
+        for (VersionEvents.Event event : events) {
+            array.add(event.toJSON());
+        }
+        JSONObject json = new JSONObject();
+        json.put("last", events.isEmpty() ? Math.max(from, 0) : events.get(events.size() - 1).getId());
+        json.put("events", array);
+        return HttpResponses.okJSON(json);
+    }
+
+    @GET
+    public void doStream(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException, InterruptedException {
+        Jenkins.get().checkPermission(Jenkins.SYSTEM_READ);
+        VersionEvents bus = VersionEvents.get();
+        long last = resumeFrom(req.getHeader("Last-Event-ID"), req.getParameter("since"), bus.getLast());
+        rsp.setStatus(HttpServletResponse.SC_OK);
+        rsp.setContentType("text/event-stream");
+        rsp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        rsp.setHeader("Cache-Control", "no-cache");
+        rsp.setHeader("X-Accel-Buffering", "no");
+        PrintWriter w = rsp.getWriter();
+        if (!waiters.tryAcquire()) {
+            // do not hold one more request thread: send what is already there, the browser reconnects later
+            w.print("retry: " + TimeUnit.SECONDS.toMillis(RETRY_SECONDS) + "\n\n");
+            write(w, bus.since(last));
+            w.flush();
+            return;
+        }
+        try {
+            w.print("retry: 1000\n\n");
+            w.flush();
+            long end = System.currentTimeMillis() + STREAM_MILLIS;
+            while (System.currentTimeMillis() < end && !w.checkError()) {
+                List<VersionEvents.Event> events = bus.await(last, KEEP_ALIVE_MILLIS);
+                if (events.isEmpty()) {
+                    w.print(": keep-alive\n\n");
+                } else {
+                    last = write(w, events);
+                }
+                w.flush();
+            }
+        } finally {
+            waiters.release();
+        }
+    }
+
+    /**
+     * Writes the given events to a stream.
+     *
+     * @return The id of the last event.
+     */
+    private static long write(PrintWriter w, List<VersionEvents.Event> events) {
+        long last = 0;
+        for (VersionEvents.Event event : events) {
+            w.print("id: " + event.getId() + "\n");
+            w.print("event: " + event.getName() + "\n");
+            w.print("data: " + event.toJSON() + "\n\n");
+            last = event.getId();
+        }
+        return last;
+    }
+
+    /**
+     * The event to resume a stream after: the last one received by a reconnecting client, the one requested, or the
+     * last published one for a new client.
+     */
+    static long resumeFrom(String lastEventId, String since, long last) {
+        for (String value : new String[] {lastEventId, since}) {
+            if (value != null) {
+                try {
+                    return sameRun(Long.parseLong(value.trim()), last);
+                } catch (NumberFormatException e) {
+                    // ignored, fall back to the next one
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * The event to resume after, given the one a client last received. Event ids start over when the controller
+     * restarts, so an id after the last published one was received before a restart: the client is sent all the
+     * events of this run instead of waiting for the new ids to catch up.
+     */
+    static long sameRun(long id, long last) {
+        return id > last ? 0 : id;
+    }
+}
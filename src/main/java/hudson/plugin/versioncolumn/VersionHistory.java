@@ -0,0 +1,284 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+import net.sf.json.JSONObject;
+
+/**
+ * History of the distribution of the agent versions, one record per monitoring cycle.
+ *
+ * <p>Records have a fixed size and are written to a memory-mapped ring buffer, so that the file never grows and a
+ * time range is read with a binary search over the record timestamps instead of loading the whole history. When the
+ * buffer is full, the oldest records are overwritten.
+ *
+ * <p>Each record holds the {@link #MAX_VERSIONS} most common versions, truncated to {@link #VERSION_BYTES} bytes; the
+ * agents running other versions are only counted. Versions that only differ after that many bytes are read back as a
+ * single version, counting the agents of both.
+ */
+final class VersionHistory {
+
+    private static final Logger LOGGER = Logger.getLogger(VersionHistory.class.getName());
+
+    static final int MAX_VERSIONS = 16;
+
+    static final int VERSION_BYTES = 64;
+
+    /**
+     * About six months of hourly cycles of both monitors.
+     */
+    static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int MAGIC = 0x56434831; // VCH1
+
+    private static final int HEADER_BYTES = 32;
+
+    private static final int COUNT_OFFSET = 16;
+
+    private static final int ENTRY_BYTES = VERSION_BYTES + Integer.BYTES;
+
+    // timestamp, monitor, number of versions, padding, others, versions
+    static final int RECORD_BYTES = Long.BYTES + 1 + 1 + Short.BYTES + Integer.BYTES + MAX_VERSIONS * ENTRY_BYTES;
+
+    private static final List<String> MONITORS = List.of(MonitoringEvents.JVM, MonitoringEvents.REMOTING);
+
+    private final int capacity;
+
+    private final MappedByteBuffer buffer;
+
+    private final LongSupplier clock;
+
+    /**
+     * Number of records ever written.
+     */
+    private long count;
+
+    VersionHistory(@NonNull File file, int capacity) throws IOException {
+        this(file, capacity, System::currentTimeMillis);
+    }
+
+    VersionHistory(@NonNull File file, int capacity, @NonNull LongSupplier clock) throws IOException {
+        this.capacity = capacity;
+        this.clock = clock;
+        Files.createDirectories(file.toPath().getParent());
+        long size = HEADER_BYTES + (long) capacity * RECORD_BYTES;
+        try (FileChannel channel = FileChannel.open(
+                file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean compatible = channel.size() == size;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (compatible
+                    && buffer.getInt(0) == MAGIC
+                    && buffer.getInt(4) == capacity
+                    && buffer.getInt(8) == RECORD_BYTES) {
+                count = buffer.getLong(COUNT_OFFSET);
+            } else {
+                if (channel.size() > size) {
+                    channel.truncate(size);
+                }
+                LOGGER.fine(() -> "Initializing version history " + file);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, capacity);
+                buffer.putInt(8, RECORD_BYTES);
+                buffer.putLong(COUNT_OFFSET, 0);
+            }
+        }
+    }
+
+    /**
+     * Appends the version distribution observed by a monitor during one cycle, timestamped now.
+     *
+     * <p>The timestamp is taken while holding the lock, and never goes back before the previous record even if the
+     * clock does, so that records stay in chronological order for {@link #search(long, long)}.
+     *
+     * @param counts The number of agents per version.
+     */
+    synchronized void append(String monitor, Map<String, Integer> counts) {
+        if (!MONITORS.contains(monitor)) {
+            throw new IllegalArgumentException("Unknown monitor " + monitor);
+        }
+        long timestamp = clock.getAsLong();
+        if (count > 0) {
+            timestamp = Math.max(timestamp, buffer.getLong(offset(count - 1)));
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        int offset = offset(count);
+        buffer.putLong(offset, timestamp);
+        buffer.put(offset + 8, (byte) MONITORS.indexOf(monitor));
+        int n = Math.min(entries.size(), MAX_VERSIONS);
+        buffer.put(offset + 9, (byte) n);
+        int others = 0;
+        for (int i = n; i < entries.size(); i++) {
+            others += entries.get(i).getValue();
+        }
+        buffer.putInt(offset + 12, others);
+        for (int i = 0; i < n; i++) {
+            int entry = offset + 16 + i * ENTRY_BYTES;
+            byte[] version = entries.get(i).getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] padded = Arrays.copyOf(version, VERSION_BYTES);
+            buffer.put(entry, padded);
+            buffer.putInt(entry + VERSION_BYTES, entries.get(i).getValue());
+        }
+        buffer.putLong(COUNT_OFFSET, ++count);
+    }
+
+    /**
+     * Reads the records of a monitor within a time range.
+     *
+     * @param max The maximum number of records to return, evenly spread over the range, or {@code 0} for all.
+     */
+    @NonNull
+    synchronized List<Record> read(String monitor, long from, long to, int max) {
+        int code = MONITORS.indexOf(monitor);
+        long first = Math.max(0, count - capacity);
+        long lo = search(first, from);
+        long hi = search(lo, to + 1);
+        if (lo >= hi || code < 0) {
+            return Collections.emptyList();
+        }
+        // the records of both monitors are interleaved, so only the records of this monitor are strided over
+        int matching = 0;
+        for (long i = lo; i < hi; i++) {
+            if (buffer.get(offset(i) + 8) == code) {
+                matching++;
+            }
+        }
+        int step = max > 0 ? Math.max(1, (matching + max - 1) / max) : 1;
+        List<Record> records = new ArrayList<>();
+        int n = 0;
+        for (long i = lo; i < hi; i++) {
+            int offset = offset(i);
+            if (buffer.get(offset + 8) == code && n++ % step == 0) {
+                records.add(readRecord(offset));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * The index of the first record at or after the given time, records being in chronological order.
+     */
+    private long search(long lo, long timestamp) {
+        long hi = count;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (buffer.getLong(offset(mid)) < timestamp) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int offset(long index) {
+        return HEADER_BYTES + (int) (index % capacity) * RECORD_BYTES;
+    }
+
+    private Record readRecord(int offset) {
+        int n = buffer.get(offset + 9);
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        byte[] version = new byte[VERSION_BYTES];
+        for (int i = 0; i < n; i++) {
+            int entry = offset + 16 + i * ENTRY_BYTES;
+            buffer.get(entry, version);
+            int length = 0;
+            while (length < VERSION_BYTES && version[length] != 0) {
+                length++;
+            }
+            counts.merge(
+                    StandardCharsets.UTF_8
+                            .decode(ByteBuffer.wrap(version, 0, length))
+                            .toString(),
+                    buffer.getInt(entry + VERSION_BYTES),
+                    Integer::sum);
+        }
+        return new Record(
+                buffer.getLong(offset), MONITORS.get(buffer.get(offset + 8)), counts, buffer.getInt(offset + 12));
+    }
+
+    synchronized long getCount() {
+        return count;
+    }
+
+    static final class Record {
+
+        private final long timestamp;
+
+        private final String monitor;
+
+        private final Map<String, Integer> counts;
+
+        private final int others;
+
+        Record(long timestamp, String monitor, Map<String, Integer> counts, int others) {
+            this.timestamp = timestamp;
+            this.monitor = monitor;
+            this.counts = counts;
+            this.others = others;
+        }
+
+        long getTimestamp() {
+            return timestamp;
+        }
+
+        String getMonitor() {
+            return monitor;
+        }
+
+        Map<String, Integer> getCounts() {
+            return counts;
+        }
+
+        int getOthers() {
+            return others;
+        }
+
+        JSONObject toJSON() {
+            JSONObject json = new JSONObject();
+            json.put("timestamp", timestamp);
+            JSONObject versions = new JSONObject();
+            versions.putAll(counts);
+            json.put("counts", versions);
+            json.put("others", others);
+            return json;
+        }
+    }
+}
@@ -23,38 +23,140 @@
  */
 package hudson.plugin.versioncolumn;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.Extension;
-import hudson.Util;
 import hudson.model.Computer;
+import hudson.model.ComputerSet;
 import hudson.node_monitors.AbstractNodeMonitorDescriptor;
 import hudson.node_monitors.MonitorOfflineCause;
 import hudson.node_monitors.NodeMonitor;
 import hudson.remoting.Launcher;
+import hudson.util.ListBoxModel;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
+import jenkins.model.Jenkins;
 import jenkins.security.MasterToSlaveCallable;
 import org.jenkinsci.Symbol;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.export.Exported;
 
 public class VersionMonitor extends NodeMonitor {
 
     private static final String masterVersion = Launcher.VERSION;
 
+    private RemotingVersionComparator.ComparisonMode comparisonMode =
+            RemotingVersionComparator.ComparisonMode.EXACT_MATCH;
+
+    /**
+     * Verdicts of the comparison mode, per agent remoting version.
+     */
+    private transient Map<String, Boolean> verdicts = new ConcurrentHashMap<>();
+
+    private VersionSampling sampling;
+
+    private AgentDrain.Enforcement enforcement = AgentDrain.Enforcement.OFFLINE;
+
+    private transient ColumnCell.Cache cells = new ColumnCell.Cache();
+
     @DataBoundConstructor
     public VersionMonitor() {}
 
+    public Object readResolve() {
+        if (comparisonMode == null) {
+            comparisonMode = RemotingVersionComparator.ComparisonMode.EXACT_MATCH;
+        }
+        if (enforcement == null) {
+            enforcement = AgentDrain.Enforcement.OFFLINE;
+        }
+        verdicts = new ConcurrentHashMap<>();
+        cells = new ColumnCell.Cache();
+        return this;
+    }
+
     @SuppressWarnings("unused") // jelly
     public String toHtml(String version) {
+        return cell(version).getHtml();
+    }
+
+    /**
+     * The cell of the given version, rendered once per version rather than once per agent and page view.
+     */
+    @SuppressWarnings("unused") // jelly
+    public ColumnCell cell(String version) {
         if (version == null) {
-            return "N/A";
+            return ColumnCell.NOT_AVAILABLE;
         }
-        if (!version.equals(masterVersion)) {
-            return Util.wrapToErrorSpan(version);
+        boolean compatible = isCompatible(version);
+        return cells.get(
+                version, compatible, () -> new ColumnCell(version, !compatible, ColumnCell.remotingSortKey(version)));
+    }
+
+    /**
+     * Whether the column is rendered as a placeholder, filled in by the browser from {@link LazyColumns}.
+     */
+    @SuppressWarnings("unused") // jelly
+    public boolean isLazy() {
+        return LazyColumns.ENABLED;
+    }
+
+    @Override
+    public String getColumnCaption() {
+        String caption = super.getColumnCaption();
+        if (caption != null && getDescriptor() instanceof DescriptorImpl descriptor) {
+            return descriptor.getWatchdog().caption(caption);
         }
-        return version;
+        return caption;
+    }
+
+    public RemotingVersionComparator.ComparisonMode getComparisonMode() {
+        return comparisonMode;
+    }
+
+    @DataBoundSetter
+    public void setComparisonMode(RemotingVersionComparator.ComparisonMode comparisonMode) {
+        this.comparisonMode = comparisonMode;
+        verdicts.clear();
+        cells.clear();
+    }
+
+    public VersionSampling getSampling() {
+        return sampling;
+    }
+
+    @DataBoundSetter
+    public void setSampling(VersionSampling sampling) {
+        this.sampling = sampling;
+    }
+
+    public AgentDrain.Enforcement getEnforcement() {
+        return enforcement;
+    }
+
+    /**
+     * Takes effect at the next monitoring cycle.
+     */
+    @DataBoundSetter
+    public void setEnforcement(AgentDrain.Enforcement enforcement) {
+        this.enforcement = enforcement == null ? AgentDrain.Enforcement.OFFLINE : enforcement;
+    }
+
+    boolean isCompatible(String version) {
+        return verdicts.computeIfAbsent(version, v -> isCompatible(v, comparisonMode));
+    }
+
+    static boolean isCompatible(String version, RemotingVersionComparator.ComparisonMode comparisonMode) {
+        return new RemotingVersionComparator(masterVersion, version, comparisonMode).isCompatible();
     }
 
     @SuppressFBWarnings(value = "MS_PKGPROTECT", justification = "for backward compatibility")
@@ -71,33 +173,264 @@ public class VersionMonitor extends NodeMonitor {
             DESCRIPTOR = this;
         }
 
+        /**
+         * Same as the time out of the asynchronous node monitors.
+         */
+        private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+        private final transient AgentCache<String> versions = new AgentCache<>("remotingVersion.versions");
+
+        /**
+         * Last verdict of each agent, so that only verdict changes are published.
+         */
+        private final transient AgentCache<Boolean> agentVerdicts = new AgentCache<>("remotingVersion.verdicts");
+
+        private final transient AtomicLong cycles = new AtomicLong();
+
+        private final transient CycleWatchdog watchdog = new CycleWatchdog(MonitoringEvents.REMOTING);
+
+        private final transient CycleCost cost = CycleCost.of(MonitoringEvents.REMOTING);
+
+        private final transient AgentDrain drain = AgentDrain.of(MonitoringEvents.REMOTING);
+
+        private final transient MismatchLog mismatches = new MismatchLog(
+                LOGGER, (count, versions) -> Messages.VersionMonitor_MismatchSummary(count, masterVersion, versions));
+
+        private final transient MismatchLog drains = new MismatchLog(
+                LOGGER,
+                (count, versions) -> Messages.VersionMonitor_DrainedSummary(count, masterVersion, versions),
+                n -> n + " more agents were drained during this cycle");
+
+        AgentCache<String> getVersions() {
+            return versions;
+        }
+
+        CycleWatchdog getWatchdog() {
+            return watchdog;
+        }
+
+        /**
+         * Applies a version probed outside of a monitoring cycle.
+         */
+        void apply(Computer c, String version) {
+            applyVerdict(c, version);
+            mismatches.flush();
+            drains.flush();
+            drain.save();
+        }
+
+        /**
+         * Whether the given agent may be online according to its cached version, without probing it.
+         *
+         * @return {@code null} if the version of the agent is not known.
+         */
+        @CheckForNull
+        Boolean isReleasable(Computer c) {
+            return isIgnored() ? Boolean.TRUE : verdict(c);
+        }
+
+        /**
+         * Whether the cached version of the given agent is acceptable, be this monitor ignored or not.
+         *
+         * @return {@code null} if the version of the agent is not known.
+         */
+        @CheckForNull
+        Boolean verdict(Computer c) {
+            String version = versions.get(c);
+            return version == null ? null : isCompatible(version);
+        }
+
+        /**
+         * Brings back online an agent held offline by this monitor.
+         */
+        void release(Computer c) {
+            bringOnline(c);
+        }
+
+        @Override
+        protected Map<Computer, String> monitor() throws InterruptedException {
+            return monitor(Jenkins.get().getComputers());
+        }
+
+        /**
+         * Runs a monitoring cycle over the given computers.
+         */
+        Map<Computer, String> monitor(Computer[] computers) throws InterruptedException {
+            return monitor(computers, TIMEOUT_MILLIS);
+        }
+
+        /**
+         * Runs a monitoring cycle over the given computers, waiting for their answers up to the given time out.
+         */
+        Map<Computer, String> monitor(Computer[] computers, long timeoutMillis) throws InterruptedException {
+            long start = System.currentTimeMillis();
+            CycleCost.Measure measure = CycleCost.start();
+            MonitoringEvents.MonitoringCycle cycle = new MonitoringEvents.MonitoringCycle(MonitoringEvents.REMOTING);
+            cycle.begin();
+            VersionSampling sampling = ComputerSet.getMonitors().get(this) instanceof VersionMonitor monitor
+                    ? watchdog.sampling(monitor.sampling)
+                    : watchdog.sampling(null);
+            long cycleNumber = cycles.getAndIncrement();
+            VersionSampling.Plan plan = sampling == null
+                    ? VersionSampling.Plan.NONE
+                    : sampling.plan(Arrays.asList(computers), cycleNumber);
+            Map<Computer, String> data = new HashMap<>();
+            List<Computer> evaluated = new ArrayList<>();
+            List<Computer> probed = new ArrayList<>();
+            for (Computer c : computers) {
+                String cached = versions.get(c);
+                if (c.getChannel() == null) {
+                    data.put(c, "unknown-version");
+                } else if (watchdog.skips(c, cycleNumber, cached != null)) {
+                    data.put(c, cached);
+                    applyVerdict(c, cached);
+                } else {
+                    evaluated.add(c);
+                    if (!plan.isDeferred(c)) {
+                        probed.add(c);
+                    }
+                }
+            }
+            SharedVersionProbe shared = SharedVersionProbe.get();
+            data.putAll(shared.probe(probed, timeoutMillis, AgentVersions::getRemoting));
+            cycle.probed = probed.size();
+            if (plan.getDeferredCount() > 0) {
+                List<Computer> diverged = plan.infer(data, versions::get);
+                data.putAll(shared.probe(diverged, timeoutMillis, AgentVersions::getRemoting));
+                cycle.probed += diverged.size();
+                cycle.inferred = plan.getDeferredCount() - diverged.size();
+            }
+            for (Computer c : evaluated) {
+                String version = data.get(c);
+                if (version != null) {
+                    applyVerdict(c, version);
+                } else {
+                    // the probe failed, keep the last known version without changing the state of the agent
+                    data.put(c, versions.get(c));
+                }
+            }
+            if (ComputerSet.getMonitors().get(this) instanceof VersionMonitor monitor) {
+                monitor.cells.clear();
+            }
+            cycle.agents = data.size();
+            cost.record(measure, data.size(), cycle);
+            cycle.commit();
+            mismatches.flush();
+            drains.flush();
+            drain.save();
+            VersionMonitorsManagement.recordHistory(MonitoringEvents.REMOTING, data);
+            watchdog.record(System.currentTimeMillis() - start);
+            return data;
+        }
+
         protected String monitor(Computer c) throws IOException, InterruptedException {
             hudson.remoting.VirtualChannel channel = c.getChannel();
             if (channel == null) {
                 return "unknown-version";
             }
-            String version = channel.call(new SlaveVersion());
-            if (version == null || !version.equals(masterVersion)) {
-                if (!isIgnored()) {
-                    markOffline(c, new RemotingVersionMismatchCause(Messages.VersionMonitor_OfflineCause()));
-                    LOGGER.warning(Messages.VersionMonitor_MarkedOffline(c.getName()));
+            long sent = System.nanoTime();
+            String version;
+            try {
+                version = channel.call(new SlaveVersion());
+            } catch (IOException | RuntimeException e) {
+                MonitoringEvents.probe(MonitoringEvents.REMOTING, c, System.nanoTime() - sent, "failed");
+                throw e;
+            }
+            long roundTrip = System.nanoTime() - sent;
+            if (version != null) {
+                ProbeLatencyMonitor.record(c, roundTrip);
+            }
+            MonitoringEvents.probe(MonitoringEvents.REMOTING, c, roundTrip, version == null ? "empty" : "ok");
+            applyVerdict(c, version);
+            return version;
+        }
+
+        private void applyVerdict(Computer c, String version) {
+            if (version != null && !version.equals(versions.put(c, version))) {
+                VersionEvents.version(MonitoringEvents.REMOTING, c, version);
+            }
+            boolean compatible = version != null && isCompatible(version);
+            if (!Boolean.valueOf(compatible).equals(agentVerdicts.put(c, compatible))) {
+                VersionEvents.verdict(MonitoringEvents.REMOTING, c, version, compatible);
+            }
+            if (!compatible) {
+                if (isIgnored()) {
+                    bringOnline(c);
+                } else if (enforcement() == AgentDrain.Enforcement.DRAIN) {
+                    putBackOnline(c);
+                    drains.mismatch(c, version, drain.drain(c), () -> Messages.VersionMonitor_Drained(c.getName()));
                 } else {
-                    if (c.isOffline() && c.getOfflineCause() instanceof RemotingVersionMismatchCause) {
-                        c.setTemporarilyOffline(false, null);
-                    }
+                    drain.release(c);
+                    RemotingVersionMismatchCause cause =
+                            new RemotingVersionMismatchCause(Messages.VersionMonitor_OfflineCause());
+                    mismatches.mismatch(
+                            c,
+                            version,
+                            !(c.getOfflineCause() instanceof RemotingVersionMismatchCause),
+                            () -> Messages.VersionMonitor_MarkedOffline(c.getName()));
+                    markOffline(c, cause);
+                    MonitoringEvents.transition(MonitoringEvents.REMOTING, c, true, cause);
+                    VersionEvents.transition(MonitoringEvents.REMOTING, c, true);
                 }
             } else {
-                if (c.isOffline() && c.getOfflineCause() instanceof RemotingVersionMismatchCause) {
-                    c.setTemporarilyOffline(false, null);
-                }
+                bringOnline(c);
             }
-            return version;
+        }
+
+        private AgentDrain.Enforcement enforcement() {
+            return ComputerSet.getMonitors().get(this) instanceof VersionMonitor monitor
+                    ? monitor.enforcement
+                    : AgentDrain.Enforcement.OFFLINE;
+        }
+
+        /**
+         * Brings back online, or stops draining, an agent held by this monitor.
+         */
+        private void bringOnline(Computer c) {
+            if (drain.release(c)) {
+                LOGGER.fine(() -> "Stopped draining " + c.getName());
+            }
+            putBackOnline(c);
+        }
+
+        /**
+         * Brings back online an agent taken offline by this monitor.
+         */
+        private void putBackOnline(Computer c) {
+            if (c.isOffline() && c.getOfflineCause() instanceof RemotingVersionMismatchCause) {
+                c.setTemporarilyOffline(false, null);
+                MonitoringEvents.transition(MonitoringEvents.REMOTING, c, false, null);
+                VersionEvents.transition(MonitoringEvents.REMOTING, c, false);
+            }
+        }
+
+        private boolean isCompatible(String version) {
+            if (ComputerSet.getMonitors().get(this) instanceof VersionMonitor monitor) {
+                return monitor.isCompatible(version);
+            }
+            return VersionMonitor.isCompatible(version, RemotingVersionComparator.ComparisonMode.EXACT_MATCH);
         }
 
         @NonNull
         public String getDisplayName() {
             return Messages.VersionMonitor_DisplayName();
         }
+
+        public ListBoxModel doFillEnforcementItems() {
+            ListBoxModel items = new ListBoxModel();
+            for (AgentDrain.Enforcement enforcement : AgentDrain.Enforcement.values()) {
+                items.add(enforcement.getDescription(), enforcement.name());
+            }
+            return items;
+        }
+
+        public ListBoxModel doFillComparisonModeItems() {
+            ListBoxModel items = new ListBoxModel();
+            for (RemotingVersionComparator.ComparisonMode goal : RemotingVersionComparator.ComparisonMode.values()) {
+                items.add(goal.getDescription(), goal.name());
+            }
+            return items;
+        }
     }
 
     public static class RemotingVersionMismatchCause extends MonitorOfflineCause {
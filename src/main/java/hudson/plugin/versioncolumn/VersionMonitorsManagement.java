@@ -0,0 +1,317 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.model.ManagementLink;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+import org.kohsuke.stapler.verb.GET;
+import org.kohsuke.stapler.verb.POST;
+
+/**
+ * Administration page of the version monitors.
+ */
+@Extension
+public class VersionMonitorsManagement extends ManagementLink {
+
+    private static final Logger LOGGER = Logger.getLogger(VersionMonitorsManagement.class.getName());
+
+    static final int MAX_HISTORY_POINTS = 1000;
+
+    private transient VersionHistory history;
+
+    /**
+     * Whether the history file failed to open, in which case it is not opened again until the next restart.
+     */
+    private transient boolean historyFailed;
+
+    @Override
+    public String getIconFileName() {
+        return "symbol-computer";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "versionMonitors";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.VersionMonitorsManagement_DisplayName();
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.VersionMonitorsManagement_Description();
+    }
+
+    @NonNull
+    @Override
+    public Category getCategory() {
+        return Category.STATUS;
+    }
+
+    /**
+     * Used by the page to render a simulation.
+     *
+     * @return {@code null} when the controller version is missing or cannot be parsed.
+     */
+    @CheckForNull
+    public UpgradeSimulation simulate(String controllerVersion, String remotingVersion) {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        Runtime.Version version = parseVersion(controllerVersion);
+        if (version == null) {
+            return null;
+        }
+        return UpgradeSimulation.run(version, Util.fixEmptyAndTrim(remotingVersion));
+    }
+
+    /**
+     * Lists the agents that would be taken offline by each comparison mode if the controller ran the given versions.
+     */
+    @GET
+    public HttpResponse doSimulate(@QueryParameter String controllerVersion, @QueryParameter String remotingVersion) {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        Runtime.Version version = parseVersion(controllerVersion);
+        if (version == null) {
+            return HttpResponses.errorWithoutStack(400, "Missing or invalid controllerVersion");
+        }
+        return HttpResponses.okJSON(
+                UpgradeSimulation.run(version, Util.fixEmptyAndTrim(remotingVersion)).toJSON());
+    }
+
+    /**
+     * The number of agents each cache of the monitors holds state for.
+     */
+    public Map<String, Integer> getStateSizes() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        return AgentCache.sizes();
+    }
+
+    @GET
+    public HttpResponse doState() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        JSONObject json = new JSONObject();
+        json.put("caches", AgentCache.sizes());
+        json.put("maxEntries", AgentCache.MAX_ENTRIES);
+        json.put("ttlMillis", AgentCache.TTL_MILLIS);
+        return HttpResponses.okJSON(json);
+    }
+
+    /**
+     * The agents drained by each monitor.
+     */
+    public Map<String, AgentDrain> getDrains() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        return AgentDrain.all();
+    }
+
+    @GET
+    public HttpResponse doDrained() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        JSONObject json = new JSONObject();
+        AgentDrain.all().forEach((monitor, drain) -> json.put(monitor, drain.toJSON()));
+        return HttpResponses.okJSON(json);
+    }
+
+    /**
+     * The CPU time and memory allocated by the last cycles of each monitor.
+     */
+    public Map<String, CycleCost> getCycleCosts() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        return CycleCost.all();
+    }
+
+    @GET
+    public HttpResponse doCost() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        JSONObject json = new JSONObject();
+        CycleCost.all().forEach((monitor, cost) -> json.put(monitor, cost.toJSON()));
+        return HttpResponses.okJSON(json);
+    }
+
+    /**
+     * Brings back online the agents held offline by the version monitors whose cached version is now acceptable.
+     *
+     * @param redirect Whether to redirect to the page with a summary, rather than answering with JSON.
+     */
+    @POST
+    public HttpResponse doRelease(@QueryParameter boolean redirect) {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        AgentRelease release = AgentRelease.run();
+        if (redirect) {
+            return HttpResponses.redirectTo(".?released=" + release.getReleased().size()
+                    + "&held=" + release.getHeld().size()
+                    + "&unknown=" + release.getUnknown().size());
+        }
+        return HttpResponses.okJSON(release.toJSON());
+    }
+
+    /**
+     * Probes the given agents, and streams the result of each of them as a line of JSON as soon as it is known.
+     * Agents are selected with {@code node} parameters, which may hold comma-separated names, and a {@code label}
+     * expression.
+     */
+    @POST
+    public void doReprobe(
+            StaplerRequest2 req, StaplerResponse2 rsp, @QueryParameter String label, @QueryParameter long timeout)
+            throws IOException, InterruptedException {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        List<String> names = new ArrayList<>();
+        String[] values = req.getParameterValues("node");
+        if (values != null) {
+            for (String value : values) {
+                for (String name : value.split(",")) {
+                    if (!name.isBlank()) {
+                        names.add(name.trim());
+                    }
+                }
+            }
+        }
+        Set<Computer> computers;
+        try {
+            computers = AgentReprobe.select(names, label);
+        } catch (IllegalArgumentException e) {
+            rsp.sendError(400, e.getMessage());
+            return;
+        }
+        if (computers.isEmpty()) {
+            rsp.sendError(400, "No agent selected");
+            return;
+        }
+        long seconds = timeout > 0 ? timeout : AgentReprobe.DEFAULT_TIMEOUT_SECONDS;
+        rsp.setContentType("application/x-ndjson;charset=UTF-8");
+        PrintWriter w = rsp.getWriter();
+        AgentReprobe.run(computers, TimeUnit.SECONDS.toMillis(seconds), result -> {
+            w.println(result.toJSON());
+            w.flush();
+        });
+    }
+
+    /**
+     * Reads the version distribution recorded by a monitor between two times, in milliseconds since the epoch.
+     *
+     * @param from Defaults to 30 days ago.
+     * @param to Defaults to now.
+     * @param max The maximum number of records, evenly spread over the range.
+     */
+    @GET
+    public HttpResponse doHistory(
+            @QueryParameter String monitor,
+            @QueryParameter long from,
+            @QueryParameter long to,
+            @QueryParameter int max) {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        if (!MonitoringEvents.JVM.equals(monitor) && !MonitoringEvents.REMOTING.equals(monitor)) {
+            return HttpResponses.errorWithoutStack(400, "Unknown monitor " + monitor);
+        }
+        long now = System.currentTimeMillis();
+        long end = to > 0 ? to : now;
+        long start = from > 0 ? from : end - TimeUnit.DAYS.toMillis(30);
+        int points = max > 0 ? Math.min(max, MAX_HISTORY_POINTS) : MAX_HISTORY_POINTS;
+        JSONArray records = new JSONArray();
+        VersionHistory h = getHistory();
+        if (h != null) {
+            for (VersionHistory.Record record : h.read(monitor, start, end, points)) {
+                records.add(record.toJSON());
+            }
+        }
+        JSONObject json = new JSONObject();
+        json.put("monitor", monitor);
+        json.put("from", start);
+        json.put("to", end);
+        json.put("records", records);
+        return HttpResponses.okJSON(json);
+    }
+
+    /**
+     * The history of the version distribution, {@code null} if its file could not be opened.
+     */
+    @CheckForNull
+    synchronized VersionHistory getHistory() {
+        if (history == null && !historyFailed) {
+            File file = new File(new File(Jenkins.get().getRootDir(), "versioncolumn"), "history.bin");
+            try {
+                history = new VersionHistory(file, VersionHistory.DEFAULT_CAPACITY);
+            } catch (IOException e) {
+                historyFailed = true;
+                LOGGER.log(Level.WARNING, "Failed to open the version history " + file + ", it is not recorded", e);
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Records the version distribution observed by a monitor at the end of a cycle.
+     */
+    static void recordHistory(String monitor, Map<Computer, String> data) {
+        Map<String, Integer> counts = new HashMap<>();
+        data.forEach((c, version) -> {
+            if (version != null && c.getChannel() != null) {
+                counts.merge(version, 1, Integer::sum);
+            }
+        });
+        VersionHistory h = ExtensionList.lookupSingleton(VersionMonitorsManagement.class)
+                .getHistory();
+        if (h != null) {
+            h.append(monitor, counts);
+        }
+    }
+
+    @CheckForNull
+    private static Runtime.Version parseVersion(String version) {
+        version = Util.fixEmptyAndTrim(version);
+        if (version == null) {
+            return null;
+        }
+        try {
+            return Runtime.Version.parse(version);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
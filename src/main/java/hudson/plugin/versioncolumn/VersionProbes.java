@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import hudson.model.Computer;
+import hudson.remoting.Callable;
+import hudson.remoting.Channel;
+import hudson.remoting.VirtualChannel;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends version probes to agents and measures their round-trip time.
+ */
+final class VersionProbes {
+
+    private static final Logger LOGGER = Logger.getLogger(VersionProbes.class.getName());
+
+    private VersionProbes() {}
+
+    /**
+     * Probes the given computers concurrently.
+     *
+     * <p>Answers are collected in submission order, blocking on each probe as core monitors do. The round-trip time
+     * recorded by the {@link ProbeLatencyMonitor} ends when the channel last heard from the agent, so that it does not
+     * include the time spent waiting for the probes sent before.
+     *
+     * @param monitor The name of the monitor sending the probes, as recorded in the {@link MonitoringEvents}.
+     * @return The result of each computer that answered before the timeout, computers without a channel or whose
+     *     probe failed are absent.
+     */
+    static <V> Map<Computer, V> probe(
+            String monitor,
+            Collection<Computer> computers,
+            Function<Computer, Callable<V, IOException>> callables,
+            long timeoutMillis)
+            throws InterruptedException {
+        Map<Computer, V> results = new HashMap<>();
+        probe(monitor, computers, callables, timeoutMillis, (c, value, roundTrip) -> results.put(c, value));
+        return results;
+    }
+
+    /**
+     * Probes the given computers concurrently, notifying the listener as each answer is collected.
+     *
+     * @param listener Called from the calling thread, only for computers that answered with a result.
+     */
+    static <V> void probe(
+            String monitor,
+            Collection<Computer> computers,
+            Function<Computer, Callable<V, IOException>> callables,
+            long timeoutMillis,
+            Listener<V> listener)
+            throws InterruptedException {
+        Map<Computer, Pending<V>> pending = new LinkedHashMap<>();
+        for (Computer c : computers) {
+            VirtualChannel channel = c.getChannel();
+            if (channel == null) {
+                continue;
+            }
+            try {
+                long sentNanos = System.nanoTime();
+                long sentMillis = System.currentTimeMillis();
+                pending.put(c, new Pending<>(channel.callAsync(callables.apply(c)), channel, sentNanos, sentMillis));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.FINE, "Failed to probe " + c.getName(), e);
+            }
+        }
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        int timeouts = 0;
+        for (Map.Entry<Computer, Pending<V>> e : pending.entrySet()) {
+            Computer c = e.getKey();
+            Pending<V> probe = e.getValue();
+            try {
+                V value = probe.future.get(Math.max(0, end - System.nanoTime()), TimeUnit.NANOSECONDS);
+                long roundTrip = probe.roundTrip();
+                if (value != null) {
+                    ProbeLatencyMonitor.record(c, roundTrip);
+                    listener.onResult(c, value, roundTrip);
+                }
+                MonitoringEvents.probe(monitor, c, roundTrip, value == null ? "empty" : "ok");
+            } catch (TimeoutException x) {
+                timeouts++;
+                MonitoringEvents.probe(monitor, c, System.nanoTime() - probe.sentNanos, "timeout");
+            } catch (ExecutionException | RuntimeException x) {
+                LOGGER.log(Level.FINE, "Failed to probe " + c.getName(), x);
+                MonitoringEvents.probe(monitor, c, probe.roundTrip(), "failed");
+            }
+        }
+        if (timeouts > 0) {
+            int n = timeouts;
+            LOGGER.fine(() -> n + " agents did not answer the version probe within " + timeoutMillis + "ms");
+        }
+    }
+
+    @FunctionalInterface
+    interface Listener<V> {
+
+        void onResult(Computer c, V value, long roundTripNanos);
+    }
+
+    private static final class Pending<V> {
+
+        private final Future<V> future;
+
+        private final VirtualChannel channel;
+
+        private final long sentNanos;
+
+        private final long sentMillis;
+
+        Pending(Future<V> future, VirtualChannel channel, long sentNanos, long sentMillis) {
+            this.future = future;
+            this.channel = channel;
+            this.sentNanos = sentNanos;
+            this.sentMillis = sentMillis;
+        }
+
+        /**
+         * The time from sending the probe until the channel last heard from the agent, which is when the answer
+         * arrived unless the agent sent something else since. Falls back to the time until the answer was collected.
+         */
+        long roundTrip() {
+            long collected = System.nanoTime() - sentNanos;
+            if (channel instanceof Channel ch) {
+                long heard = TimeUnit.MILLISECONDS.toNanos(ch.getLastHeard() - sentMillis);
+                if (heard >= 0 && heard < collected) {
+                    return heard;
+                }
+            }
+            return collected;
+        }
+    }
+}
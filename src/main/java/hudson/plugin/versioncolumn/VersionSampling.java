@@ -0,0 +1,276 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Computer;
+import hudson.model.Descriptor;
+import hudson.model.Node;
+import hudson.slaves.EnvironmentVariablesNodeProperty;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * Probes only a few agents of each group of identical agents, typically agents provisioned from the same cloud
+ * template, and infers the result for the rest of the group.
+ *
+ * <p>Samples rotate from one cycle to the next so that every agent is eventually probed. When the samples of a group
+ * do not agree, or differ from the results of the previous cycle, the whole group is probed.
+ */
+public class VersionSampling extends AbstractDescribableImpl<VersionSampling> {
+
+    private final GroupKey groupBy;
+
+    private int samplesPerGroup = 1;
+
+    @CheckForNull
+    private String variable;
+
+    @DataBoundConstructor
+    public VersionSampling(GroupKey groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    public GroupKey getGroupBy() {
+        return groupBy;
+    }
+
+    public int getSamplesPerGroup() {
+        return samplesPerGroup;
+    }
+
+    @DataBoundSetter
+    public void setSamplesPerGroup(int samplesPerGroup) {
+        this.samplesPerGroup = Math.max(1, samplesPerGroup);
+    }
+
+    @CheckForNull
+    public String getVariable() {
+        return variable;
+    }
+
+    /**
+     * Name of the environment variable of the agents holding the group, used with {@link GroupKey#NODE_PROPERTY}.
+     */
+    @DataBoundSetter
+    public void setVariable(String variable) {
+        this.variable = Util.fixEmptyAndTrim(variable);
+    }
+
+    /**
+     * The group of the given computer, or {@code null} if it does not belong to any group and must always be probed.
+     */
+    @CheckForNull
+    String groupOf(@NonNull Computer c) {
+        Node node = c.getNode();
+        if (node == null) {
+            return null;
+        }
+        if (groupBy == GroupKey.NODE_PROPERTY) {
+            if (variable == null) {
+                return null;
+            }
+            EnvironmentVariablesNodeProperty property =
+                    node.getNodeProperties().get(EnvironmentVariablesNodeProperty.class);
+            return property == null ? null : property.getEnvVars().get(variable);
+        }
+        return Util.fixEmptyAndTrim(node.getLabelString());
+    }
+
+    /**
+     * Selects the agents to probe during a cycle.
+     *
+     * @param computers The computers to monitor.
+     * @param cycle The number of the cycle, used to rotate the samples.
+     */
+    Plan plan(@NonNull Collection<Computer> computers, long cycle) {
+        Map<String, List<Computer>> groups = new TreeMap<>();
+        for (Computer c : computers) {
+            if (c.getChannel() == null) {
+                continue;
+            }
+            String group = groupOf(c);
+            if (group != null) {
+                groups.computeIfAbsent(group, g -> new ArrayList<>()).add(c);
+            }
+        }
+        Plan plan = new Plan();
+        for (Map.Entry<String, List<Computer>> e : groups.entrySet()) {
+            List<Computer> members = e.getValue();
+            if (members.size() <= samplesPerGroup) {
+                continue;
+            }
+            members.sort(Comparator.comparing(Computer::getName));
+            int first = (int) ((cycle * samplesPerGroup) % members.size());
+            List<Computer> samples = new ArrayList<>();
+            List<Computer> deferred = new ArrayList<>();
+            for (int i = 0; i < members.size(); i++) {
+                if (Math.floorMod(i - first, members.size()) < samplesPerGroup) {
+                    samples.add(members.get(i));
+                } else {
+                    deferred.add(members.get(i));
+                }
+            }
+            plan.samples.put(e.getKey(), samples);
+            plan.deferred.put(e.getKey(), deferred);
+            plan.deferredComputers.addAll(deferred);
+        }
+        return plan;
+    }
+
+    public enum GroupKey {
+        LABELS(Messages.VersionSampling_LABELS()),
+        NODE_PROPERTY(Messages.VersionSampling_NODE_PROPERTY());
+
+        private final String description;
+
+        GroupKey(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * The agents probed and deferred during one cycle.
+     */
+    static final class Plan {
+
+        static final Plan NONE = new Plan();
+
+        private final Map<String, List<Computer>> samples = new HashMap<>();
+
+        private final Map<String, List<Computer>> deferred = new HashMap<>();
+
+        private final Set<Computer> deferredComputers = new HashSet<>();
+
+        /**
+         * Whether the computer is not probed during this cycle, and its result is inferred from the samples.
+         */
+        boolean isDeferred(Computer c) {
+            return deferredComputers.contains(c);
+        }
+
+        int getDeferredCount() {
+            return deferredComputers.size();
+        }
+
+        /**
+         * Infers the result of the deferred computers from the results of the samples of their group.
+         *
+         * <p>A single sample cannot diverge from itself, so the samples are also compared with the results of the
+         * previous cycle: when a sample, or a deferred member of its group, had a different result, the group is
+         * changing, for example during a rolling upgrade, and its deferred members are probed too.
+         *
+         * @param results The probe results, completed with the inferred results.
+         * @param previous The result of each computer during the previous cycle, or {@code null} if unknown.
+         * @return The deferred computers of the groups whose samples failed, diverged or changed, which must be
+         *     probed.
+         */
+        <V> List<Computer> infer(Map<Computer, V> results, Function<Computer, V> previous) {
+            List<Computer> toProbe = new ArrayList<>();
+            for (Map.Entry<String, List<Computer>> e : samples.entrySet()) {
+                Set<V> values = new HashSet<>();
+                for (Computer sample : e.getValue()) {
+                    values.add(results.get(sample));
+                }
+                List<Computer> members = deferred.get(e.getKey());
+                if (values.size() == 1 && !values.contains(null)) {
+                    V value = values.iterator().next();
+                    if (changed(e.getValue(), value, previous) || changed(members, value, previous)) {
+                        toProbe.addAll(members);
+                        continue;
+                    }
+                    for (Computer c : members) {
+                        results.put(c, value);
+                    }
+                } else {
+                    toProbe.addAll(members);
+                }
+            }
+            return toProbe;
+        }
+
+        private static <V> boolean changed(List<Computer> computers, V value, Function<Computer, V> previous) {
+            for (Computer c : computers) {
+                V last = previous.apply(c);
+                if (last != null && !last.equals(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<VersionSampling> {
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.VersionSampling_DisplayName();
+        }
+
+        public ListBoxModel doFillGroupByItems() {
+            ListBoxModel items = new ListBoxModel();
+            for (GroupKey key : GroupKey.values()) {
+                items.add(key.getDescription(), key.name());
+            }
+            return items;
+        }
+
+        public FormValidation doCheckSamplesPerGroup(@QueryParameter int value) {
+            if (value < 1) {
+                return FormValidation.error(Messages.VersionSampling_SamplesPerGroupInvalid());
+            }
+            return FormValidation.ok();
+        }
+
+        public FormValidation doCheckVariable(@QueryParameter String groupBy, @QueryParameter String value) {
+            if (GroupKey.NODE_PROPERTY.name().equals(groupBy) && Util.fixEmptyAndTrim(value) == null) {
+                return FormValidation.error(Messages.VersionSampling_VariableRequired());
+            }
+            return FormValidation.ok();
+        }
+    }
+}
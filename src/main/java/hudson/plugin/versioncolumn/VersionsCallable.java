@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017-, Baptiste Mathus
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugin.versioncolumn;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.remoting.Launcher;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.security.MasterToSlaveCallable;
+
+/**
+ * Collects the JVM and remoting versions of an agent in a single round trip, and its runtime profile and host identity
+ * if requested.
+ */
+final class VersionsCallable extends MasterToSlaveCallable<AgentVersions, IOException> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = Logger.getLogger(VersionsCallable.class.getName());
+
+    private static final Path MACHINE_ID = Paths.get("/etc/machine-id");
+
+    private final boolean profile;
+
+    private final boolean identify;
+
+    VersionsCallable(boolean profile) {
+        this(profile, false);
+    }
+
+    VersionsCallable(boolean profile, boolean identify) {
+        this.profile = profile;
+        this.identify = identify;
+    }
+
+    @Override
+    public AgentVersions call() {
+        String remoting;
+        try {
+            remoting = Launcher.VERSION;
+        } catch (Throwable ex) {
+            // Older agent.jar won't have VERSION
+            remoting = "< 1.335";
+        }
+        return new AgentVersions(
+                Runtime.version().toString(),
+                remoting,
+                profile ? RuntimeProfile.collect() : null,
+                identify ? hostIdentity() : null);
+    }
+
+    /**
+     * Identifies the host and the JVM installation running the agent: its host name, its machine id when available, so
+     * that hosts cloned from the same image with the same name are told apart, and its Java home.
+     *
+     * @return {@code null} if the host name cannot be determined.
+     */
+    @CheckForNull
+    static String hostIdentity() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to read the host name", e);
+            return null;
+        }
+        String machineId = "";
+        if (Files.isReadable(MACHINE_ID)) {
+            try {
+                machineId = Files.readString(MACHINE_ID, StandardCharsets.US_ASCII).trim();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to read " + MACHINE_ID, e);
+            }
+        }
+        return host + " " + machineId + " " + System.getProperty("java.home");
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Fills in the placeholders of the version columns of the nodes page, from a single call once the page is displayed.
+ */
+(function () {
+  function fill(cells, json) {
+    cells.forEach(function (td) {
+      var column = json[td.dataset.versioncolumnMonitor];
+      var index = column ? column.nodes[td.dataset.versioncolumnNode] : undefined;
+      var cell = index === undefined ? ["N/A", false, -1] : column.cells[index];
+      var content = document.createTextNode(cell[0]);
+      if (cell[1]) {
+        var span = document.createElement("span");
+        span.className = "error";
+        span.style.display = "inline-block";
+        span.appendChild(content);
+        content = span;
+      }
+      td.replaceChildren(content);
+      td.setAttribute("data", cell[2]);
+    });
+  }
+
+  function load() {
+    var cells = document.querySelectorAll("td[data-versioncolumn-monitor]");
+    if (cells.length === 0) {
+      return;
+    }
+    var root = document.head.dataset.rooturl || "";
+    fetch(root + "/versionColumns/cells", { credentials: "same-origin" })
+      .then(function (rsp) {
+        return rsp.json();
+      })
+      .then(function (json) {
+        fill(cells, json);
+      });
+  }
+
+  if (document.readyState === "loading") {
+    document.addEventListener("DOMContentLoaded", load);
+  } else {
+    load();
+  }
+})();
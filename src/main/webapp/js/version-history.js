@@ -0,0 +1,102 @@
+/*
+ * Draws the version history of the agents as stacked areas, one per version.
+ */
+(function () {
+  var COLORS = ["#1f77b4", "#ff7f0e", "#2ca02c", "#d62728", "#9467bd", "#8c564b", "#e377c2", "#7f7f7f",
+    "#bcbd22", "#17becf", "#aec7e8", "#ffbb78", "#98df8a", "#ff9896", "#c5b0d5", "#c49c94", "#dddddd"];
+  var DAY = 24 * 60 * 60 * 1000;
+
+  function load() {
+    var canvas = document.getElementById("version-history-chart");
+    var monitor = document.getElementById("version-history-monitor").value;
+    var days = parseInt(document.getElementById("version-history-range").value, 10);
+    var to = Date.now();
+    var params = new URLSearchParams({
+      monitor: monitor,
+      from: to - days * DAY,
+      to: to,
+      max: canvas.width,
+    });
+    fetch(canvas.dataset.url + "?" + params, { credentials: "same-origin" })
+      .then(function (rsp) {
+        return rsp.json();
+      })
+      .then(function (json) {
+        draw(canvas, json);
+      });
+  }
+
+  function draw(canvas, json) {
+    var ctx = canvas.getContext("2d");
+    var legend = document.getElementById("version-history-legend");
+    ctx.clearRect(0, 0, canvas.width, canvas.height);
+    legend.textContent = "";
+    var records = json.records;
+    if (records.length === 0) {
+      ctx.fillText(canvas.dataset.empty, 10, 20);
+      return;
+    }
+    var versions = [];
+    var max = 0;
+    records.forEach(function (r) {
+      var total = r.others;
+      Object.keys(r.counts).forEach(function (v) {
+        if (versions.indexOf(v) < 0) {
+          versions.push(v);
+        }
+        total += r.counts[v];
+      });
+      max = Math.max(max, total);
+    });
+    versions.sort();
+    versions.push("others");
+    var left = 40;
+    var bottom = canvas.height - 20;
+    var width = canvas.width - left;
+    var height = bottom - 10;
+    function x(t) {
+      return left + ((t - json.from) / Math.max(1, json.to - json.from)) * width;
+    }
+    function y(n) {
+      return bottom - (n / Math.max(1, max)) * height;
+    }
+    function count(r, v) {
+      return v === "others" ? r.others : r.counts[v] || 0;
+    }
+    var base = records.map(function () {
+      return 0;
+    });
+    versions.forEach(function (v, i) {
+      var top = records.map(function (r, j) {
+        return base[j] + count(r, v);
+      });
+      ctx.beginPath();
+      records.forEach(function (r, j) {
+        ctx.lineTo(x(r.timestamp), y(top[j]));
+      });
+      for (var j = records.length - 1; j >= 0; j--) {
+        ctx.lineTo(x(records[j].timestamp), y(base[j]));
+      }
+      ctx.closePath();
+      ctx.fillStyle = COLORS[i % COLORS.length];
+      ctx.fill();
+      base = top;
+      var item = document.createElement("li");
+      item.style.color = ctx.fillStyle;
+      item.textContent = v;
+      legend.appendChild(item);
+    });
+    ctx.fillStyle = "#000";
+    ctx.fillText(String(max), 2, y(max) + 10);
+    ctx.fillText("0", 2, bottom);
+    ctx.fillText(new Date(json.from).toLocaleDateString(), left, canvas.height - 4);
+    var end = new Date(json.to).toLocaleDateString();
+    ctx.fillText(end, canvas.width - ctx.measureText(end).width, canvas.height - 4);
+  }
+
+  document.addEventListener("DOMContentLoaded", function () {
+    document.getElementById("version-history-monitor").addEventListener("change", load);
+    document.getElementById("version-history-range").addEventListener("change", load);
+    load();
+  });
+})();
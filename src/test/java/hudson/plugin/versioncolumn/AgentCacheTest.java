@@ -0,0 +1,101 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Computer;
+import hudson.model.Node;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class AgentCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testEntriesExpire() {
+        AgentCache<String> cache = new AgentCache<>("test.expire", 100, 1000, clock::get);
+        Computer read = agent("read");
+        Computer idle = agent("idle");
+        cache.put(read, "21.0.5+11");
+        cache.put(idle, "21.0.5+11");
+
+        clock.set(800);
+        assertEquals("21.0.5+11", cache.get(read));
+        clock.set(1500);
+        cache.expire();
+
+        assertEquals(1, cache.size());
+        assertEquals("21.0.5+11", cache.get(read));
+        assertNull(cache.get(idle));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntriesAreEvicted() {
+        AgentCache<String> cache = new AgentCache<>("test.lru", 10, Long.MAX_VALUE, clock::get);
+        Computer first = agent("agent-0");
+        cache.put(first, "17.0.13+11");
+        for (int i = 1; i <= 10; i++) {
+            clock.incrementAndGet();
+            cache.put(agent("agent-" + i), "17.0.13+11");
+            // keep the first agent in use
+            cache.get(first);
+        }
+
+        assertTrue(cache.size() <= 10, "size is " + cache.size());
+        assertEquals("17.0.13+11", cache.get(first));
+        assertNull(cache.get(agent("agent-1")));
+    }
+
+    @Test
+    void testEvictionWhileEntriesAreRead() throws Exception {
+        AtomicLong ticks = new AtomicLong();
+        AgentCache<String> cache = new AgentCache<>("test.concurrent", 100, Long.MAX_VALUE, ticks::incrementAndGet);
+        Computer[] agents = new Computer[200];
+        for (int i = 0; i < agents.length; i++) {
+            agents[i] = agent("agent-" + i);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            for (int i = 0; !done.get(); i++) {
+                cache.get(agents[i % agents.length]);
+            }
+        });
+        reader.start();
+        try {
+            for (int i = 0; i < 100_000; i++) {
+                cache.put(agents[i % agents.length], "17.0.13+11");
+            }
+        } finally {
+            done.set(true);
+            reader.join();
+        }
+
+        assertTrue(cache.size() <= 100, "size is " + cache.size());
+    }
+
+    @Test
+    void testDeletedNodesAreRemovedFromAllCaches() {
+        AgentCache<String> versions = new AgentCache<>("test.versions");
+        AgentCache<Boolean> verdicts = new AgentCache<>("test.verdicts");
+        Computer computer = agent("ephemeral");
+        versions.put(computer, "21.0.5+11");
+        verdicts.put(computer, true);
+        assertEquals(1, AgentCache.sizes().get("test.versions"));
+
+        Node node = mock(Node.class);
+        when(node.getNodeName()).thenReturn("ephemeral");
+        new AgentStateCleanup().onDeleted(node);
+
+        assertNull(versions.get(computer));
+        assertNull(verdicts.get(computer));
+        assertEquals(0, AgentCache.sizes().get("test.versions"));
+    }
+
+    private static Computer agent(String name) {
+        Computer computer = mock(Computer.class);
+        when(computer.getName()).thenReturn(name);
+        return computer;
+    }
+}
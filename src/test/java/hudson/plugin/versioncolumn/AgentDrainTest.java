@@ -0,0 +1,178 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Computer;
+import hudson.model.ComputerSet;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Queue;
+import hudson.model.Run;
+import hudson.slaves.DumbSlave;
+import java.nio.file.Path;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class AgentDrainTest {
+
+    private JenkinsRule j;
+
+    private JVMVersionMonitor monitor;
+
+    private JVMVersionMonitor.JvmVersionDescriptor descriptor;
+
+    private DumbSlave agent;
+
+    private Computer computer;
+
+    @TempDir
+    private Path directory;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule) throws Exception {
+        j = rule;
+        monitor = new JVMVersionMonitor(JVMVersionComparator.ComparisonMode.EXACT_MATCH);
+        monitor.setDisconnect(true);
+        monitor.setEnforcement(AgentDrain.Enforcement.DRAIN);
+        ComputerSet.getMonitors().replace(monitor);
+        descriptor = (JVMVersionMonitor.JvmVersionDescriptor) monitor.getDescriptor();
+        agent = j.createOnlineSlave(j.jenkins.getLabel("agent"));
+        computer = agent.getComputer();
+        descriptor.monitor();
+
+        // Pretend the last cycle saw an old JVM on the agent
+        descriptor.getVersions().put(computer, "1.99.99.99+99");
+        descriptor.reevaluate(monitor);
+    }
+
+    @Test
+    void testDrainedAgentStaysOnlineWithoutNewBuilds() throws Exception {
+        assertTrue(computer.isOnline());
+        assertTrue(AgentDrain.of(MonitoringEvents.JVM).isDrained(computer));
+        FreeStyleProject project = j.createFreeStyleProject();
+        project.setAssignedNode(agent);
+
+        Future<FreeStyleBuild> build = project.scheduleBuild2(0);
+        j.jenkins.getQueue().maintain();
+        Queue.Item item = j.jenkins.getQueue().getItem(project);
+        assertNotNull(item);
+        assertFalse(build.isDone());
+        assertTrue(item.getWhy().contains(agent.getDisplayName()), item.getWhy());
+
+        descriptor.getVersions().put(computer, Runtime.version().toString());
+        descriptor.reevaluate(monitor);
+
+        assertFalse(AgentDrain.of(MonitoringEvents.JVM).isDrained(computer));
+        j.assertBuildStatusSuccess(build.get(1, TimeUnit.MINUTES));
+    }
+
+    @Test
+    void testSwitchToOffline() {
+        monitor.setEnforcement(AgentDrain.Enforcement.OFFLINE);
+        descriptor.reevaluate(monitor);
+
+        assertFalse(AgentDrain.of(MonitoringEvents.JVM).isDrained(computer));
+        assertInstanceOf(JVMVersionMonitor.JVMMismatchCause.class, computer.getOfflineCause());
+
+        monitor.setEnforcement(AgentDrain.Enforcement.DRAIN);
+        descriptor.reevaluate(monitor);
+
+        assertTrue(AgentDrain.of(MonitoringEvents.JVM).isDrained(computer));
+        assertFalse(computer.getOfflineCause() instanceof JVMVersionMonitor.JVMMismatchCause);
+    }
+
+    @Test
+    void testDrainedAgentRefusesNewPipelines() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition("node('agent') { echo 'on the agent' }", true));
+
+        WorkflowRun run = job.scheduleBuild2(0).waitForStart();
+        Queue.Item item = null;
+        for (int i = 0; i < 600 && item == null; i++) {
+            Thread.sleep(100);
+            j.jenkins.getQueue().maintain();
+            for (Queue.Item candidate : j.jenkins.getQueue().getItems()) {
+                if (candidate.task.getOwnerExecutable() == run) {
+                    item = candidate;
+                }
+            }
+        }
+        assertNotNull(item, "the node block is not queued");
+        assertTrue(item.getWhy().contains(agent.getDisplayName()), item.getWhy());
+        assertTrue(run.isBuilding());
+        j.assertLogNotContains("on the agent", run);
+
+        descriptor.getVersions().put(computer, Runtime.version().toString());
+        descriptor.reevaluate(monitor);
+
+        j.assertBuildStatusSuccess(j.waitForCompletion(run));
+        j.assertLogContains("on the agent", run);
+    }
+
+    @Test
+    void testBuildsStartedBeforeTheDrainAreAdmitted() {
+        AtomicLong clock = new AtomicLong(1000);
+        AgentDrain drain = new AgentDrain("test", clock::get);
+        Computer c = mock(Computer.class);
+        when(c.getName()).thenReturn("agent");
+        Queue.Task running = task(999);
+        Queue.Task started = task(1000);
+        Queue.Task queued = mock(Queue.Task.class);
+
+        assertTrue(drain.admits(c, queued));
+        assertTrue(drain.drain(c));
+        clock.set(2000);
+        // later cycles do not move the drain time
+        assertFalse(drain.drain(c));
+
+        assertTrue(drain.admits(c, running));
+        assertFalse(drain.admits(c, started));
+        assertFalse(drain.admits(c, queued));
+
+        assertTrue(drain.release(c));
+        assertTrue(drain.admits(c, started));
+    }
+
+    @Test
+    void testDrainsSurviveRestarts() {
+        Path file = directory.resolve("drained-test.properties");
+        AgentDrain drain = new AgentDrain("test", () -> 1000, file);
+        Computer c = mock(Computer.class);
+        when(c.getName()).thenReturn("agent");
+        drain.drain(c);
+        drain.save();
+
+        AgentDrain restarted = new AgentDrain("test", () -> 5000, file);
+        assertEquals(1000, restarted.drainedSince(c));
+
+        restarted.release(c);
+        restarted.save();
+        assertFalse(new AgentDrain("test", () -> 5000, file).isDrained(c));
+    }
+
+    @Test
+    void testDeletedAgentIsReleased() throws Exception {
+        j.jenkins.removeNode(agent);
+
+        assertFalse(AgentDrain.of(MonitoringEvents.JVM).isDrained(computer));
+    }
+
+    private static Queue.Task task(long started) {
+        Run<?, ?> run = mock(Run.class);
+        when(run.getStartTimeInMillis()).thenReturn(started);
+        Queue.Task task = mock(Queue.Task.class);
+        doReturn(run).when(task).getOwnerExecutable();
+        return task;
+    }
+}
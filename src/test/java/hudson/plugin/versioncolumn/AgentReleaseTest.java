@@ -0,0 +1,71 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hudson.cli.CLICommandInvoker;
+import hudson.model.Computer;
+import hudson.model.ComputerSet;
+import hudson.slaves.DumbSlave;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class AgentReleaseTest {
+
+    private JenkinsRule j;
+
+    private JVMVersionMonitor.JvmVersionDescriptor descriptor;
+
+    private Computer computer;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule) throws Exception {
+        j = rule;
+        JVMVersionMonitor exactMatch = new JVMVersionMonitor(JVMVersionComparator.ComparisonMode.EXACT_MATCH);
+        exactMatch.setDisconnect(true);
+        ComputerSet.getMonitors().replace(exactMatch);
+        descriptor = (JVMVersionMonitor.JvmVersionDescriptor) exactMatch.getDescriptor();
+        DumbSlave agent = j.createOnlineSlave();
+        computer = agent.getComputer();
+        descriptor.monitor();
+
+        // Pretend the last cycle saw an old JVM on the agent
+        descriptor.getVersions().put(computer, "1.99.99.99+99");
+        descriptor.reevaluate(exactMatch);
+        assertInstanceOf(JVMVersionMonitor.JVMMismatchCause.class, computer.getOfflineCause());
+    }
+
+    @Test
+    void testReleaseCompatibleAgents() {
+        descriptor.getVersions().put(computer, Runtime.version().toString());
+
+        AgentRelease release = AgentRelease.run();
+
+        assertEquals(List.of(computer.getName()), release.getReleased());
+        assertFalse(computer.getOfflineCause() instanceof JVMVersionMonitor.JVMMismatchCause);
+    }
+
+    @Test
+    void testIncompatibleAgentsAreHeld() {
+        AgentRelease release = AgentRelease.run();
+
+        assertEquals(List.of(computer.getName()), release.getHeld());
+        assertTrue(release.getReleased().isEmpty());
+        assertInstanceOf(JVMVersionMonitor.JVMMismatchCause.class, computer.getOfflineCause());
+    }
+
+    @Test
+    void testReleaseFromCli() {
+        descriptor.getVersions().put(computer, Runtime.version().toString());
+
+        CLICommandInvoker.Result result =
+                new CLICommandInvoker(j, new ReleaseVersionHeldAgentsCommand()).invoke();
+
+        assertEquals(0, result.returnCode());
+        assertEquals("Released " + computer.getName() + System.lineSeparator(), result.stdout());
+        assertFalse(computer.getOfflineCause() instanceof JVMVersionMonitor.JVMMismatchCause);
+    }
+}
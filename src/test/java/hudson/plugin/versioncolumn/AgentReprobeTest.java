@@ -0,0 +1,70 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hudson.cli.CLICommandInvoker;
+import hudson.model.Computer;
+import hudson.model.labels.LabelAtom;
+import hudson.remoting.Launcher;
+import hudson.slaves.DumbSlave;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class AgentReprobeTest {
+
+    private JenkinsRule j;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule) {
+        j = rule;
+    }
+
+    @Test
+    void testSelectByNameAndLabel() throws Exception {
+        DumbSlave linux = j.createOnlineSlave(new LabelAtom("linux"));
+        DumbSlave windows = j.createOnlineSlave(new LabelAtom("windows"));
+
+        assertEquals(Set.of(linux.toComputer()), AgentReprobe.select(null, "linux"));
+        assertEquals(
+                Set.of(linux.toComputer(), windows.toComputer()),
+                AgentReprobe.select(List.of(windows.getNodeName()), "linux"));
+        assertThrows(IllegalArgumentException.class, () -> AgentReprobe.select(List.of("missing"), null));
+    }
+
+    @Test
+    void testReprobeUpdatesMonitors() throws Exception {
+        DumbSlave agent = j.createOnlineSlave();
+        Computer computer = agent.toComputer();
+        List<AgentReprobe.Result> results = new ArrayList<>();
+
+        AgentReprobe.run(List.of(computer), 30_000, results::add);
+
+        assertEquals(1, results.size());
+        assertEquals(AgentReprobe.Outcome.OK, results.get(0).getOutcome());
+        assertEquals(Runtime.version().toString(), results.get(0).getJvmVersion());
+        assertEquals(Launcher.VERSION, results.get(0).getRemotingVersion());
+        JVMVersionMonitor.JvmVersionDescriptor jvm =
+                j.jenkins.getDescriptorByType(JVMVersionMonitor.JvmVersionDescriptor.class);
+        assertEquals(Runtime.version().toString(), jvm.getVersions().get(computer));
+        VersionMonitor.DescriptorImpl remoting = j.jenkins.getDescriptorByType(VersionMonitor.DescriptorImpl.class);
+        assertEquals(Launcher.VERSION, remoting.getVersions().get(computer));
+    }
+
+    @Test
+    void testReprobeFromCli() throws Exception {
+        DumbSlave agent = j.createOnlineSlave();
+
+        CLICommandInvoker.Result result =
+                new CLICommandInvoker(j, new ReprobeAgentsCommand()).invokeWithArgs(agent.getNodeName());
+
+        assertEquals(0, result.returnCode());
+        assertTrue(
+                result.stdout().startsWith(agent.getNodeName() + " jvm=" + Runtime.version()), result.stdout());
+    }
+}
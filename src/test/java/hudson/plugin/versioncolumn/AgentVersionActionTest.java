@@ -0,0 +1,61 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hudson.model.ComputerSet;
+import hudson.slaves.DumbSlave;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class AgentVersionActionTest {
+
+    @Test
+    void testTreeFilteredVersions(JenkinsRule j) throws Exception {
+        DumbSlave agent = j.createOnlineSlave();
+        j.jenkins.getDescriptorByType(JVMVersionMonitor.JvmVersionDescriptor.class).monitor();
+
+        JSONObject versions = versions(j, agent, "actions[jvm[feature,build],remoting,jvmCompatible,lastProbed,stale]");
+
+        JSONObject jvm = versions.getJSONObject("jvm");
+        assertEquals(Runtime.version().feature(), jvm.getInt("feature"));
+        assertFalse(jvm.has("interim"), "not selected");
+        assertTrue(versions.getBoolean("jvmCompatible"));
+        assertTrue(versions.getLong("lastProbed") > 0);
+        assertFalse(versions.getBoolean("stale"));
+        // the remoting monitor did not run
+        assertTrue(!versions.has("remoting") || JSONNull.getInstance().equals(versions.get("remoting")));
+    }
+
+    @Test
+    void testUnknownAgent(JenkinsRule j) throws Exception {
+        // keep core from refreshing the version monitors when the agent connects
+        ComputerSet.getMonitors().remove(j.jenkins.getDescriptorByType(JVMVersionMonitor.JvmVersionDescriptor.class));
+        ComputerSet.getMonitors().remove(j.jenkins.getDescriptorByType(VersionMonitor.DescriptorImpl.class));
+        DumbSlave agent = j.createOnlineSlave();
+        // and forget what other tests may have recorded for an agent of the same name
+        AgentCache.removeAll(agent.getNodeName());
+
+        JSONObject versions = versions(j, agent, "actions[lastProbed,staleness,stale]");
+
+        assertEquals(-1, versions.getLong("lastProbed"));
+        assertEquals(-1, versions.getLong("staleness"));
+        assertTrue(versions.getBoolean("stale"));
+    }
+
+    private static JSONObject versions(JenkinsRule j, DumbSlave agent, String tree) throws Exception {
+        JSONArray actions = j.getJSON("computer/" + agent.getNodeName() + "/api/json?tree=" + tree)
+                .getJSONObject()
+                .getJSONArray("actions");
+        for (Object action : actions) {
+            if (action instanceof JSONObject json && json.has("stale")) {
+                return json;
+            }
+        }
+        throw new AssertionError("No version action in " + actions);
+    }
+}
@@ -0,0 +1,69 @@
+package hudson.plugin.versioncolumn;
+
+import hudson.model.ComputerSet;
+import hudson.model.Result;
+import hudson.slaves.DumbSlave;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class AgentVersionsStepTest {
+
+    @Test
+    void testCachedVersions(JenkinsRule j) throws Exception {
+        j.createOnlineSlave(j.jenkins.getLabel("agent"));
+        j.jenkins.getDescriptorByType(JVMVersionMonitor.JvmVersionDescriptor.class).monitor();
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+                "node('agent') { def v = agentVersions(failOnIncompatible: true)\n"
+                        + "echo \"jvm=${v.jvm} feature=${v.jvmFeature} compatible=${v.jvmCompatible}\"\n"
+                        + "echo \"stale=${v.stale}\" }",
+                true));
+
+        WorkflowRun run = j.buildAndAssertSuccess(job);
+
+        j.assertLogContains(
+                "jvm=" + Runtime.version() + " feature=" + Runtime.version().feature() + " compatible=true", run);
+        j.assertLogContains("stale=false", run);
+    }
+
+    @Test
+    void testUnknownVersions(JenkinsRule j) throws Exception {
+        // keep core from refreshing the version monitors when the agent connects
+        ComputerSet.getMonitors().remove(j.jenkins.getDescriptorByType(JVMVersionMonitor.JvmVersionDescriptor.class));
+        ComputerSet.getMonitors().remove(j.jenkins.getDescriptorByType(VersionMonitor.DescriptorImpl.class));
+        DumbSlave agent = j.createOnlineSlave(j.jenkins.getLabel("agent"));
+        // and forget what other tests may have recorded for an agent of the same name
+        AgentCache.removeAll(agent.getNodeName());
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+                "node('agent') { def v = agentVersions(failOnIncompatible: true)\n"
+                        + "echo \"jvm=${v.jvm} compatible=${v.jvmCompatible} stale=${v.stale}\" }",
+                true));
+
+        WorkflowRun run = j.buildAndAssertSuccess(job);
+
+        j.assertLogContains("jvm=null compatible=null stale=true", run);
+    }
+
+    @Test
+    void testFailOnIncompatible(JenkinsRule j) throws Exception {
+        JVMVersionMonitor monitor = new JVMVersionMonitor(JVMVersionComparator.ComparisonMode.EXACT_MATCH);
+        monitor.setDisconnect(false);
+        ComputerSet.getMonitors().replace(monitor);
+        JVMVersionMonitor.JvmVersionDescriptor descriptor =
+                (JVMVersionMonitor.JvmVersionDescriptor) monitor.getDescriptor();
+        DumbSlave agent = j.createOnlineSlave(j.jenkins.getLabel("agent"));
+        descriptor.getVersions().put(agent.getComputer(), "1.99.99.99+99");
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition("node('agent') { agentVersions(failOnIncompatible: true) }", true));
+
+        WorkflowRun run = j.assertBuildStatus(Result.FAILURE, job.scheduleBuild2(0));
+
+        j.assertLogContains(Messages.AgentVersionsStep_IncompatibleJvm(agent.getNodeName(), "1.99.99.99+99"), run);
+    }
+}
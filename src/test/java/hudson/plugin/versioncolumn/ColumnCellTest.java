@@ -0,0 +1,66 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hudson.Util;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+class ColumnCellTest {
+
+    @Test
+    void testJvmSortKey() {
+        assertTrue(jvm("11.0.25+9") < jvm("17.0.13+11"));
+        assertTrue(jvm("17.0.9+9") < jvm("17.0.13+11"));
+        assertTrue(jvm("17.0.13+10") < jvm("17.0.13+11"));
+        assertTrue(jvm("21") < jvm("21.0.1"));
+    }
+
+    @Test
+    void testRemotingSortKey() {
+        assertTrue(ColumnCell.remotingSortKey("4.13.3") < ColumnCell.remotingSortKey("3261.v9c670a_4748a_9"));
+        assertTrue(ColumnCell.remotingSortKey("3261.v9c670a_4748a_9")
+                < ColumnCell.remotingSortKey("3301.v4363ddcca_4e7"));
+        assertTrue(ColumnCell.remotingSortKey("4.9") < ColumnCell.remotingSortKey("4.13.3"));
+        assertEquals(0, ColumnCell.remotingSortKey("unknown-version"));
+    }
+
+    @Test
+    void testCellsAreRenderedOncePerVersion() {
+        JVMVersionMonitor monitor = new JVMVersionMonitor(JVMVersionComparator.ComparisonMode.EXACT_MATCH);
+        String version = Runtime.version().toString();
+
+        ColumnCell cell = monitor.cell(version);
+
+        assertSame(cell, monitor.cell(version));
+        assertEquals(version, cell.getHtml());
+        assertEquals(Util.wrapToErrorSpan("1.1.1.1+1"), monitor.cell("1.1.1.1+1").getHtml());
+        assertSame(ColumnCell.NOT_AVAILABLE, monitor.cell(null));
+        assertSame(ColumnCell.NOT_AVAILABLE, monitor.cell("N/A"));
+    }
+
+    @Test
+    void testClear() {
+        int[] renders = new int[1];
+        ColumnCell.Cache cache = new ColumnCell.Cache();
+        Supplier<ColumnCell> render = () -> {
+            renders[0]++;
+            return new ColumnCell("21.0.5+11", false, 0);
+        };
+        cache.get("21.0.5+11", true, render);
+        cache.get("21.0.5+11", true, render);
+        assertEquals(1, renders[0]);
+
+        // the verdict is part of the key
+        cache.get("21.0.5+11", false, render);
+        assertEquals(2, renders[0]);
+
+        cache.clear();
+        cache.get("21.0.5+11", true, render);
+        assertEquals(3, renders[0]);
+    }
+
+    private static long jvm(String version) {
+        return ColumnCell.jvmSortKey(Runtime.Version.parse(version));
+    }
+}
@@ -0,0 +1,109 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import hudson.remoting.Launcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Records the cost of the monitoring cycles, and enforces the allocation budgets of the paths run for each agent.
+ *
+ * <p>The evaluation and rendering paths are memoized per version, so once warmed up they must only allocate a few
+ * small objects per agent whatever the size of the fleet.
+ */
+class CycleCostTest {
+
+    /**
+     * Agents per measure. The fleet runs a handful of versions, as real fleets do.
+     */
+    private static final int AGENTS = 10_000;
+
+    private static final long EVALUATION_BUDGET_BYTES = 64;
+
+    private static final long RENDERING_BUDGET_BYTES = 256;
+
+    @Test
+    void testRecord() {
+        CycleCost cost = CycleCost.of("test");
+        CycleCost.Measure measure = CycleCost.start();
+        List<String> garbage = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            garbage.add("agent-" + i);
+        }
+        MonitoringEvents.MonitoringCycle event = new MonitoringEvents.MonitoringCycle("test");
+
+        cost.record(measure, garbage.size(), event);
+
+        assertEquals(1, cost.getCycles());
+        assertEquals(1000, cost.getAgents());
+        assertSame(cost, CycleCost.all().get("test"));
+        assertEquals(cost.getAllocatedBytes(), event.allocated);
+        if (CycleCost.allocatedBytes() >= 0) {
+            assertTrue(cost.getAllocatedBytes() > 0);
+            assertEquals(cost.getAllocatedBytes() / 1000, cost.getAllocatedBytesPerAgent());
+        }
+    }
+
+    @Test
+    void testJvmEvaluationBudget() {
+        JVMVersionMonitor monitor = new JVMVersionMonitor(JVMVersionComparator.ComparisonMode.EXACT_MATCH);
+        monitor.setPolicies(List.of(new DenyListPolicy("17.0.4")));
+        String[] versions = jvmVersions();
+
+        assertBudget(EVALUATION_BUDGET_BYTES, i -> monitor.isCompatible(versions[i % versions.length], null));
+    }
+
+    @Test
+    void testRemotingEvaluationBudget() {
+        VersionMonitor monitor = new VersionMonitor();
+        String[] versions = remotingVersions();
+
+        assertBudget(EVALUATION_BUDGET_BYTES, i -> monitor.isCompatible(versions[i % versions.length]));
+    }
+
+    @Test
+    void testJvmRenderingBudget() {
+        JVMVersionMonitor monitor = new JVMVersionMonitor(JVMVersionComparator.ComparisonMode.EXACT_MATCH);
+        String[] versions = jvmVersions();
+
+        assertBudget(RENDERING_BUDGET_BYTES, i -> monitor.cell(null, versions[i % versions.length]));
+    }
+
+    @Test
+    void testRemotingRenderingBudget() {
+        VersionMonitor monitor = new VersionMonitor();
+        String[] versions = remotingVersions();
+
+        assertBudget(RENDERING_BUDGET_BYTES, i -> monitor.cell(versions[i % versions.length]));
+    }
+
+    /**
+     * Runs the given path once per agent of a warmed up fleet, and checks the memory allocated per agent.
+     */
+    private static void assertBudget(long bytesPerAgent, IntConsumer path) {
+        assumeTrue(CycleCost.allocatedBytes() >= 0, "per-thread allocation counters are not supported");
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < AGENTS; i++) {
+                path.accept(i);
+            }
+        }
+        long before = CycleCost.allocatedBytes();
+        for (int i = 0; i < AGENTS; i++) {
+            path.accept(i);
+        }
+        long perAgent = (CycleCost.allocatedBytes() - before) / AGENTS;
+        assertTrue(perAgent <= bytesPerAgent, perAgent + " bytes allocated per agent, over " + bytesPerAgent);
+    }
+
+    private static String[] jvmVersions() {
+        return new String[] {"11.0.25+9", "17.0.4+8", "17.0.13+11", "21.0.5+11", Runtime.version().toString()};
+    }
+
+    private static String[] remotingVersions() {
+        return new String[] {"3261.v9c670a_4748a_9", "3301.v4363ddcca_4e7", "4.13.3", Launcher.VERSION};
+    }
+}
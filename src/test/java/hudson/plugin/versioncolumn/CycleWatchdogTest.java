@@ -0,0 +1,82 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Computer;
+import org.junit.jupiter.api.Test;
+
+class CycleWatchdogTest {
+
+    @Test
+    void testOverrunsDegradeOneLevelAtATime() {
+        CycleWatchdog watchdog = new CycleWatchdog("test", 1000);
+        watchdog.record(500);
+        assertEquals(CycleWatchdog.Degradation.NONE, watchdog.getLevel());
+
+        watchdog.record(1500);
+        assertEquals(CycleWatchdog.Degradation.SAMPLING, watchdog.getLevel());
+        watchdog.record(1500);
+        watchdog.record(1500);
+        watchdog.record(1500);
+        assertEquals(CycleWatchdog.Degradation.CACHED, watchdog.getLevel());
+        assertEquals(4, watchdog.getOverruns());
+    }
+
+    @Test
+    void testRecoversAfterHealthyCycles() {
+        CycleWatchdog watchdog = new CycleWatchdog("test", 1000);
+        watchdog.record(1500);
+        watchdog.record(1500);
+        assertEquals(CycleWatchdog.Degradation.STAGGERED, watchdog.getLevel());
+
+        for (int i = 0; i < CycleWatchdog.HEALTHY_CYCLES - 1; i++) {
+            watchdog.record(100);
+        }
+        // a cycle close to the period interrupts the recovery
+        watchdog.record(900);
+        watchdog.record(100);
+        assertEquals(CycleWatchdog.Degradation.STAGGERED, watchdog.getLevel());
+
+        for (int i = 0; i < CycleWatchdog.HEALTHY_CYCLES - 1; i++) {
+            watchdog.record(100);
+        }
+        assertEquals(CycleWatchdog.Degradation.SAMPLING, watchdog.getLevel());
+    }
+
+    @Test
+    void testSamplingOnlyForcedWhenDegraded() {
+        CycleWatchdog watchdog = new CycleWatchdog("test", 1000);
+        assertNull(watchdog.sampling(null));
+        watchdog.record(1500);
+        assertSame(CycleWatchdog.DEFAULT_SAMPLING, watchdog.sampling(null));
+        VersionSampling configured = new VersionSampling(VersionSampling.GroupKey.LABELS);
+        assertSame(configured, watchdog.sampling(configured));
+    }
+
+    @Test
+    void testStaggeredProbesEachAgentOncePerRound() {
+        CycleWatchdog watchdog = new CycleWatchdog("test", 1000);
+        watchdog.record(1500);
+        watchdog.record(1500);
+        Computer computer = mock(Computer.class);
+        when(computer.getName()).thenReturn("agent");
+
+        int probes = 0;
+        for (int cycle = 0; cycle < CycleWatchdog.STAGGER; cycle++) {
+            if (!watchdog.skips(computer, cycle, true)) {
+                probes++;
+            }
+            assertFalse(watchdog.skips(computer, cycle, false));
+        }
+        assertEquals(1, probes);
+    }
+
+    @Test
+    void testCaptionShowsDegradation() {
+        CycleWatchdog watchdog = new CycleWatchdog("test", 1000);
+        assertEquals("JVM Version", watchdog.caption("JVM Version"));
+        watchdog.record(1500);
+        assertEquals("JVM Version (degraded: sampling)", watchdog.caption("JVM Version"));
+    }
+}
@@ -0,0 +1,212 @@
+package hudson.plugin.versioncolumn;
+
+import static org.mockito.Mockito.*;
+
+import hudson.model.Computer;
+import hudson.remoting.Callable;
+import hudson.remoting.Launcher;
+import hudson.remoting.VirtualChannel;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Simulated fleet of agents, answering the probes through in-process channels.
+ *
+ * <p>Each agent answers after a random latency, with a version drawn from the configured distribution. Unresponsive
+ * agents never answer, so that the monitors wait for them until their time out.
+ *
+ * <p>The agents answer from a thread of their own thread group, which is not counted as a thread of the controller.
+ */
+final class FakeAgents implements AutoCloseable {
+
+    private final ThreadGroup agents = new ThreadGroup("fake agents");
+
+    private final ScheduledExecutorService remote = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(agents, r, "fake agents");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Random random = new Random(42);
+
+    private int minLatencyMillis;
+
+    private int maxLatencyMillis;
+
+    private double unresponsive;
+
+    private final Map<String, Double> jvmVersions = new LinkedHashMap<>();
+
+    private final Map<String, Double> remotingVersions = new LinkedHashMap<>();
+
+    FakeAgents latency(int minMillis, int maxMillis) {
+        minLatencyMillis = minMillis;
+        maxLatencyMillis = maxMillis;
+        return this;
+    }
+
+    /**
+     * @param ratio The ratio of agents that never answer.
+     */
+    FakeAgents unresponsive(double ratio) {
+        unresponsive = ratio;
+        return this;
+    }
+
+    FakeAgents jvm(String version, double weight) {
+        jvmVersions.put(version, weight);
+        return this;
+    }
+
+    FakeAgents remoting(String version, double weight) {
+        remotingVersions.put(version, weight);
+        return this;
+    }
+
+    /**
+     * Creates the given number of connected agents.
+     */
+    Computer[] create(String prefix, int count) {
+        Computer[] computers = new Computer[count];
+        for (int i = 0; i < count; i++) {
+            Computer computer = mock(Computer.class, withSettings().stubOnly());
+            String name = prefix + "-" + i;
+            when(computer.getName()).thenReturn(name);
+            when(computer.getDisplayName()).thenReturn(name);
+            AgentVersions versions = new AgentVersions(
+                    draw(jvmVersions, Runtime.version().toString()), draw(remotingVersions, Launcher.VERSION), null);
+            FakeChannel channel = new FakeChannel(
+                    versions,
+                    random.nextDouble() < unresponsive,
+                    minLatencyMillis + random.nextInt(maxLatencyMillis - minLatencyMillis + 1));
+            when(computer.getChannel()).thenReturn(channel);
+            computers[i] = computer;
+        }
+        return computers;
+    }
+
+    private String draw(Map<String, Double> distribution, String fallback) {
+        double total = distribution.values().stream().mapToDouble(Double::doubleValue).sum();
+        double x = random.nextDouble() * total;
+        for (Map.Entry<String, Double> e : distribution.entrySet()) {
+            x -= e.getValue();
+            if (x < 0) {
+                return e.getKey();
+            }
+        }
+        return fallback;
+    }
+
+    @Override
+    public void close() {
+        remote.shutdownNow();
+    }
+
+    private final class FakeChannel implements VirtualChannel {
+
+        private final AgentVersions versions;
+
+        private final boolean unresponsive;
+
+        private final int latencyMillis;
+
+        FakeChannel(AgentVersions versions, boolean unresponsive, int latencyMillis) {
+            this.versions = versions;
+            this.unresponsive = unresponsive;
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <V, T extends Throwable> hudson.remoting.Future<V> callAsync(Callable<V, T> callable) {
+            CompletableFuture<V> future = new CompletableFuture<>();
+            if (unresponsive) {
+                return new FakeFuture<>(future);
+            }
+            remote.schedule(
+                    () -> {
+                        if (callable instanceof VersionsCallable) {
+                            future.complete((V) versions);
+                        } else {
+                            try {
+                                future.complete(callable.call());
+                            } catch (Throwable t) {
+                                future.completeExceptionally(t);
+                            }
+                        }
+                    },
+                    latencyMillis,
+                    TimeUnit.MILLISECONDS);
+            return new FakeFuture<>(future);
+        }
+
+        @Override
+        public <V, T extends Throwable> V call(Callable<V, T> callable) throws IOException, InterruptedException {
+            try {
+                return callAsync(callable).get();
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        }
+
+        @Override
+        public void close() {}
+
+        @Override
+        public void join() {}
+
+        @Override
+        public void join(long timeout) {}
+
+        @Override
+        public <T> T export(Class<T> type, T instance) {
+            return instance;
+        }
+
+        @Override
+        public void syncLocalIO() {}
+    }
+
+    private static final class FakeFuture<V> implements hudson.remoting.Future<V> {
+
+        private final Future<V> future;
+
+        FakeFuture(Future<V> future) {
+            this.future = future;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return future.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException {
+            return future.get();
+        }
+
+        @Override
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return future.get(timeout, unit);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package hudson.plugin.versioncolumn;
 import static org.junit.jupiter.api.Assertions.*;
 
 import hudson.model.Computer;
+import hudson.model.ComputerSet;
 import hudson.slaves.DumbSlave;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
@@ -53,4 +54,45 @@ class JVMVersionMonitorJenkinsRuleTest {
         }
         assertEquals(2, result.size(), "result is " + result.keySet());
     }
+
+    @Test
+    void testReevaluateUsesCachedVersions() throws Exception {
+        JVMVersionMonitor exactMatch = new JVMVersionMonitor(JVMVersionComparator.ComparisonMode.EXACT_MATCH);
+        exactMatch.setDisconnect(true);
+        ComputerSet.getMonitors().replace(exactMatch);
+        DumbSlave agent = j.createOnlineSlave();
+        Computer computer = agent.getComputer();
+        descriptor.monitor();
+        assertTrue(computer.isOnline());
+
+        // Pretend the last cycle saw an old JVM on the agent
+        descriptor.getVersions().put(computer, "1.99.99.99+99");
+        descriptor.reevaluate(exactMatch);
+        assertInstanceOf(JVMVersionMonitor.JVMMismatchCause.class, computer.getOfflineCause());
+
+        descriptor.getVersions().put(computer, Runtime.version().toString());
+        descriptor.reevaluate(exactMatch);
+        assertFalse(computer.getOfflineCause() instanceof JVMVersionMonitor.JVMMismatchCause);
+    }
+
+    @Test
+    void testMonitorWhenDisabled() throws Exception {
+        DumbSlave agent = j.createOnlineSlave();
+        ComputerSet.getMonitors().remove(descriptor);
+
+        Map<Computer, String> result = descriptor.monitor();
+        assertEquals(Runtime.version().toString(), result.get(agent.getComputer()));
+        assertTrue(agent.getComputer().isOnline());
+    }
+
+    @Test
+    void testMonitorRecordsProbeLatency() throws Exception {
+        DumbSlave agent = j.createOnlineSlave();
+        descriptor.monitor();
+        ProbeLatencyMonitor.DescriptorImpl latencyDescriptor =
+                j.jenkins.getDescriptorByType(ProbeLatencyMonitor.DescriptorImpl.class);
+        ProbeLatency.Stats stats = latencyDescriptor.get(agent.getComputer());
+        assertNotNull(stats);
+        assertEquals(1, stats.getSamples());
+    }
 }
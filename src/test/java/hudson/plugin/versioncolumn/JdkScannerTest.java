@@ -0,0 +1,109 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JdkScannerTest {
+
+    @TempDir
+    Path jvms;
+
+    private final JdkScanner scanner = new JdkScanner();
+
+    @Test
+    void testFullScan() throws Exception {
+        String jdk17 = jdk("jdk-17", "JAVA_VERSION=\"17.0.13\"\nJAVA_RUNTIME_VERSION=\"17.0.13+11\"");
+        String jdk8 = jdk("jdk8", "JAVA_VERSION=\"1.8.0_432\"");
+        Files.createDirectory(jvms.resolve("not-a-jdk"));
+
+        JdkScanner.Delta delta = scanner.scan(List.of(jvms.toString()), 0);
+
+        assertTrue(delta.isFull());
+        assertEquals(Map.of(jdk17, "17.0.13+11", jdk8, "1.8.0_432"), delta.getChanged());
+        assertNotEquals(0, delta.getToken());
+        InstalledJdks installed = InstalledJdks.apply(null, delta);
+        assertEquals("17.0.13+11, 1.8.0_432", installed.toString());
+    }
+
+    @Test
+    void testUnchangedDirectoriesAreNotReadAgain() throws Exception {
+        jdk("jdk-17", "JAVA_VERSION=\"17.0.13\"");
+        jdk("jdk-21", "JAVA_VERSION=\"21.0.5\"");
+        JdkScanner.Delta first = scanner.scan(List.of(jvms.toString()), 0);
+        int reads = scanner.reads;
+
+        JdkScanner.Delta second = scanner.scan(List.of(jvms.toString()), first.getToken());
+
+        assertFalse(second.isFull());
+        assertTrue(second.isEmpty());
+        assertEquals(first.getToken(), second.getToken());
+        assertEquals(reads, scanner.reads);
+        InstalledJdks installed = InstalledJdks.apply(null, first);
+        assertSame(installed, InstalledJdks.apply(installed, second));
+    }
+
+    @Test
+    void testDeltas() throws Exception {
+        String jdk17 = jdk("jdk-17", "JAVA_VERSION=\"17.0.13\"");
+        JdkScanner.Delta first = scanner.scan(List.of(jvms.toString()), 0);
+        InstalledJdks installed = InstalledJdks.apply(null, first);
+
+        String jdk21 = jdk("jdk-21", "JAVA_VERSION=\"21.0.5\"");
+        delete(jdk17);
+        touch(jvms.toFile());
+        JdkScanner.Delta second = scanner.scan(List.of(jvms.toString()), first.getToken());
+
+        assertFalse(second.isFull());
+        assertEquals(Map.of(jdk21, "21.0.5"), second.getChanged());
+        assertEquals(Set.of(jdk17), second.getRemoved());
+        installed = InstalledJdks.apply(installed, second);
+        assertEquals(Map.of(jdk21, "21.0.5"), installed.getVersions());
+    }
+
+    @Test
+    void testUnknownTokenGetsFullScan() throws Exception {
+        String home = jdk("jdk-21", "JAVA_VERSION=\"21.0.5\"");
+        scanner.scan(List.of(jvms.toString()), 0);
+
+        // for example after the controller restarted
+        JdkScanner.Delta delta = scanner.scan(List.of(jvms.toString()), 0);
+
+        assertTrue(delta.isFull());
+        assertEquals(Map.of(home, "21.0.5"), delta.getChanged());
+    }
+
+    @Test
+    void testJdkHomeAsRoot() throws Exception {
+        String home = jdk("jdk-21", "JAVA_VERSION=\"21.0.5\"");
+        JdkScanner.Delta delta = scanner.scan(List.of(home, jvms.resolve("missing").toString()), 0);
+        assertEquals(Map.of(home, "21.0.5"), delta.getChanged());
+    }
+
+    private String jdk(String name, String release) throws IOException {
+        Path home = Files.createDirectory(jvms.resolve(name));
+        Files.writeString(home.resolve("release"), release, StandardCharsets.UTF_8);
+        return home.toString();
+    }
+
+    private static void delete(String home) throws IOException {
+        Files.delete(Path.of(home, "release"));
+        Files.delete(Path.of(home));
+    }
+
+    /**
+     * Moves the modification time forward, as file systems may not record it with a finer resolution than a second.
+     */
+    private static void touch(File directory) {
+        assertTrue(directory.setLastModified(directory.lastModified() + 2000));
+    }
+}
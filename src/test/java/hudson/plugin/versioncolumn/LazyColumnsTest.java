@@ -0,0 +1,57 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import hudson.model.ComputerSet;
+import hudson.node_monitors.NodeMonitor;
+import hudson.slaves.DumbSlave;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class LazyColumnsTest {
+
+    private JenkinsRule j;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule) {
+        j = rule;
+    }
+
+    @Test
+    void testDisabledByDefault() {
+        assertFalse(new JVMVersionMonitor().isLazy());
+        assertFalse(new VersionMonitor().isLazy());
+    }
+
+    @Test
+    void testCellsAreSharedByVersion() throws Exception {
+        DumbSlave first = j.createOnlineSlave();
+        DumbSlave second = j.createOnlineSlave();
+        NodeMonitor monitor = ComputerSet.getMonitors()
+                .get(j.jenkins.getDescriptorByType(JVMVersionMonitor.JvmVersionDescriptor.class));
+        // the endpoint reads the data recorded by core at the end of a cycle: wait for any cycle started before the
+        // agents were online, then run one over them
+        for (int i = 0; i < 2; i++) {
+            Thread cycle = monitor.triggerUpdate();
+            if (cycle != null) {
+                cycle.join();
+            }
+        }
+
+        JSONObject json = j.getJSON("versionColumns/cells").getJSONObject();
+
+        JSONObject jvm = json.getJSONObject(MonitoringEvents.JVM);
+        int index = jvm.getJSONObject("nodes").getInt(first.getNodeName());
+        assertEquals(index, jvm.getJSONObject("nodes").getInt(second.getNodeName()));
+        JSONArray cell = jvm.getJSONArray("cells").getJSONArray(index);
+        assertEquals(Runtime.version().toString(), cell.getString(0));
+        assertFalse(cell.getBoolean(1));
+        assertEquals(ColumnCell.jvmSortKey(Runtime.version()), cell.getLong(2));
+        assertTrue(json.has(MonitoringEvents.REMOTING));
+    }
+}
@@ -0,0 +1,128 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Computer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MismatchLogTest {
+
+    private final Logger logger = Logger.getLogger(MismatchLogTest.class.getName());
+
+    private final List<LogRecord> records = new ArrayList<>();
+
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            records.add(record);
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    };
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final MismatchLog log =
+            new MismatchLog(logger, (count, versions) -> count + " agents: " + versions, clock::get);
+
+    @BeforeEach
+    void addHandler() {
+        logger.setLevel(Level.ALL);
+        logger.addHandler(handler);
+    }
+
+    @AfterEach
+    void removeHandler() {
+        logger.removeHandler(handler);
+    }
+
+    @Test
+    void testOneSummaryPerCycle() {
+        for (int i = 0; i < 100; i++) {
+            log.mismatch(agent("agent-" + i), i % 2 == 0 ? "17.0.2+8" : "11.0.20+8", false, () -> "detail");
+        }
+        log.flush();
+
+        assertEquals(1, records.size());
+        assertEquals(Level.WARNING, records.get(0).getLevel());
+        assertEquals(
+                "100 agents: 11.0.20+8 (50: agent-1, agent-3, agent-5, agent-7, agent-9, ...); "
+                        + "17.0.2+8 (50: agent-0, agent-2, agent-4, agent-6, agent-8, ...)",
+                records.get(0).getMessage());
+    }
+
+    @Test
+    void testDetailsOnlyOnStateChangesAndCapped() {
+        for (int i = 0; i < MismatchLog.MAX_DETAILS_PER_CYCLE + 5; i++) {
+            log.mismatch(agent("agent-" + i), "17.0.2+8", true, () -> "detail");
+        }
+        log.mismatch(agent("already-offline"), "17.0.2+8", false, () -> "unexpected");
+        log.flush();
+
+        assertEquals(
+                MismatchLog.MAX_DETAILS_PER_CYCLE,
+                records.stream().filter(r -> "detail".equals(r.getMessage())).count());
+        assertTrue(records.stream().noneMatch(r -> "unexpected".equals(r.getMessage())));
+        assertEquals(
+                "5 more agents were taken offline during this cycle",
+                records.get(records.size() - 1).getMessage());
+    }
+
+    @Test
+    void testDrainedAgents() {
+        MismatchLog drains = new MismatchLog(
+                logger,
+                (count, versions) -> count + " agents drained: " + versions,
+                n -> n + " more agents were drained",
+                clock::get);
+        for (int i = 0; i < MismatchLog.MAX_DETAILS_PER_CYCLE + 1; i++) {
+            drains.mismatch(agent("agent-" + i), "17.0.2+8", true, () -> "detail");
+        }
+        drains.flush();
+
+        assertTrue(records.get(records.size() - 2).getMessage().startsWith("21 agents drained: 17.0.2+8"));
+        assertEquals("1 more agents were drained", records.get(records.size() - 1).getMessage());
+    }
+
+    @Test
+    void testUnchangedSummaryIsRateLimited() {
+        log.mismatch(agent("agent"), "17.0.2+8", false, () -> "detail");
+        log.flush();
+        clock.addAndGet(MismatchLog.SUMMARY_INTERVAL_MILLIS - 1);
+        log.mismatch(agent("agent"), "17.0.2+8", false, () -> "detail");
+        log.flush();
+        clock.addAndGet(1);
+        log.mismatch(agent("agent"), "17.0.2+8", false, () -> "detail");
+        log.flush();
+
+        assertEquals(Level.WARNING, records.get(0).getLevel());
+        assertEquals(Level.FINE, records.get(1).getLevel());
+        assertEquals(Level.WARNING, records.get(2).getLevel());
+    }
+
+    @Test
+    void testNothingLoggedWithoutMismatch() {
+        log.flush();
+        assertTrue(records.isEmpty());
+    }
+
+    private static Computer agent(String name) {
+        Computer computer = mock(Computer.class);
+        when(computer.getName()).thenReturn(name);
+        return computer;
+    }
+}
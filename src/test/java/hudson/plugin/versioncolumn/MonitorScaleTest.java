@@ -0,0 +1,155 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.management.ThreadMXBean;
+import hudson.model.Computer;
+import hudson.remoting.Launcher;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+/**
+ * Drives the version monitors against thousands of simulated agents, and fails when the cycle time, the number of
+ * additional threads or the memory allocated by a cycle go past the baselines recorded in
+ * {@code scale-baselines.properties}.
+ *
+ * <p>By default, a smoke run over {@link #SMOKE_AGENTS} agents checks that the test still works; the fleet sizes the
+ * baselines are recorded for are tested with for example {@code -Dversioncolumn.scale.agents=5000,20000}. A few agents
+ * never answer, so every cycle waits for them until {@link #TIMEOUT_MILLIS}.
+ *
+ * <p>Each cycle runs in a thread group of its own, and only the threads started in that group are counted, so that
+ * the background threads of Jenkins do not make the thread count flaky.
+ */
+@WithJenkins
+class MonitorScaleTest {
+
+    private static final Logger LOGGER = Logger.getLogger(MonitorScaleTest.class.getName());
+
+    private static final String SMOKE_AGENTS = "200";
+
+    private static final String[] SIZES = System.getProperty("versioncolumn.scale.agents", SMOKE_AGENTS).split(",");
+
+    private static final long TIMEOUT_MILLIS = 2000;
+
+    private static JenkinsRule j;
+
+    private static Properties baselines;
+
+    @BeforeAll
+    static void setUp(JenkinsRule rule) throws IOException {
+        j = rule;
+        baselines = new Properties();
+        try (InputStream in = MonitorScaleTest.class.getResourceAsStream("scale-baselines.properties")) {
+            assertNotNull(in, "Missing baselines");
+            baselines.load(in);
+        }
+    }
+
+    @Test
+    void testJvmMonitor() throws Exception {
+        JVMVersionMonitor.JvmVersionDescriptor descriptor =
+                j.jenkins.getDescriptorByType(JVMVersionMonitor.JvmVersionDescriptor.class);
+        for (String size : SIZES) {
+            int agents = Integer.parseInt(size.trim());
+            try (FakeAgents fleet = fleet()) {
+                Computer[] computers = fleet.create("jvm-" + agents, agents);
+                Map<Computer, String> data =
+                        measure(MonitoringEvents.JVM, agents, () -> descriptor.monitor(computers, TIMEOUT_MILLIS));
+                assertEquals(agents, data.size());
+            }
+        }
+    }
+
+    @Test
+    void testRemotingMonitor() throws Exception {
+        VersionMonitor.DescriptorImpl descriptor = j.jenkins.getDescriptorByType(VersionMonitor.DescriptorImpl.class);
+        for (String size : SIZES) {
+            int agents = Integer.parseInt(size.trim());
+            try (FakeAgents fleet = fleet()) {
+                Computer[] computers = fleet.create("remoting-" + agents, agents);
+                Map<Computer, String> data = measure(
+                        MonitoringEvents.REMOTING, agents, () -> descriptor.monitor(computers, TIMEOUT_MILLIS));
+                assertEquals(agents, data.size());
+            }
+        }
+    }
+
+    private static FakeAgents fleet() {
+        return new FakeAgents()
+                .latency(1, 50)
+                .unresponsive(0.01)
+                .jvm(Runtime.version().toString(), 0.8)
+                .jvm("17.0.13+11", 0.15)
+                .jvm("11.0.25+9", 0.05)
+                .remoting(Launcher.VERSION, 0.9)
+                .remoting("3261.v9c670a_4748a_9", 0.1);
+    }
+
+    private static <T> T measure(String monitor, int agents, Cycle<T> cycle) throws Exception {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ThreadGroup group = new ThreadGroup("scale cycle");
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        long[] measures = new long[2];
+        Thread runner = new Thread(
+                group,
+                () -> {
+                    long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+                    long start = System.nanoTime();
+                    try {
+                        result.set(cycle.run());
+                    } catch (Exception e) {
+                        failure.set(e);
+                    }
+                    measures[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    measures[1] = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+                },
+                "scale cycle");
+        runner.start();
+        int peakThreads = 0;
+        while (runner.isAlive()) {
+            // not counting the thread running the cycle
+            peakThreads = Math.max(peakThreads, group.activeCount() - 1);
+            runner.join(5);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        long cycleMillis = measures[0];
+        long allocatedBytes = measures[1];
+        LOGGER.info(String.format(
+                "%s monitor, %d agents: cycle %d ms, %d additional threads, %d MB allocated",
+                monitor, agents, cycleMillis, peakThreads, allocatedBytes >> 20));
+        assertWithinBaseline(monitor, agents, "cycleMillis", cycleMillis);
+        assertWithinBaseline(monitor, agents, "peakThreads", peakThreads);
+        assertWithinBaseline(monitor, agents, "allocatedBytes", allocatedBytes);
+        return result.get();
+    }
+
+    private static void assertWithinBaseline(String monitor, int agents, String metric, long value) {
+        String key = monitor + "." + agents + "." + metric;
+        String baseline = baselines.getProperty(key);
+        if (baseline == null) {
+            LOGGER.info("No baseline for " + key);
+            return;
+        }
+        assertTrue(value <= Long.parseLong(baseline), key + " is " + value + ", baseline is " + baseline);
+    }
+
+    @FunctionalInterface
+    private interface Cycle<T> {
+
+        T run() throws Exception;
+    }
+}
@@ -0,0 +1,60 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Computer;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MonitoringEventsTest {
+
+    @TempDir
+    private Path tmp;
+
+    @Test
+    void testComparatorEvaluationIsRecorded() throws Exception {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("hudson.plugin.versioncolumn.ComparatorEvaluation");
+            recording.start();
+            new RemotingVersionComparator(
+                    "3283.v92c105e0f819", "3301.v4363ddcca_4e7", RemotingVersionComparator.ComparisonMode.EXACT_MATCH);
+            recording.stop();
+            Path file = tmp.resolve("comparator.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals("3301.v4363ddcca_4e7", event.getString("agentVersion"));
+        assertFalse(event.getBoolean("compatible"));
+    }
+
+    @Test
+    void testProbeIsRecorded() throws Exception {
+        Computer computer = mock(Computer.class);
+        when(computer.getName()).thenReturn("agent");
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("hudson.plugin.versioncolumn.VersionProbe");
+            recording.start();
+            MonitoringEvents.probe(MonitoringEvents.JVM, computer, 1_500_000, "ok");
+            recording.stop();
+            Path file = tmp.resolve("probe.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        assertEquals(1, events.size());
+        assertEquals("agent", events.get(0).getString("node"));
+        assertEquals(1_500_000, events.get(0).getDuration("latency").toNanos());
+        assertEquals("ok", events.get(0).getString("outcome"));
+    }
+}
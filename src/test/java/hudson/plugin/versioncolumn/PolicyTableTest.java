@@ -0,0 +1,140 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Node;
+import hudson.model.labels.LabelAtom;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+class PolicyTableTest {
+
+    private static final Runtime.Version CONTROLLER = Runtime.Version.parse("17.0.13+11");
+
+    @Test
+    void testComparisonModeDecidesWithoutPolicies() {
+        PolicyTable table = table(List.of());
+
+        assertTrue(table.isCompatible("21.0.5+11", null));
+        assertFalse(table.isCompatible("11.0.25+9", null));
+    }
+
+    @Test
+    void testDenyList() {
+        PolicyTable table = table(List.of(new DenyListPolicy("17.0.4\n\n21.0.1+12")));
+
+        assertFalse(table.isCompatible("17.0.4.1+1", null));
+        assertFalse(table.isCompatible("21.0.1+12", null));
+        assertTrue(table.isCompatible("21.0.1+13", null));
+        assertTrue(table.isCompatible("17.0.13+11", null));
+    }
+
+    @Test
+    void testRange() {
+        JdkRangePolicy range = new JdkRangePolicy(null);
+        range.setMinimum("11");
+        range.setMaximum("17");
+        PolicyTable table = table(List.of(range));
+
+        assertTrue(table.isCompatible("11.0.25+9", null));
+        assertTrue(table.isCompatible("17.0.13+11", null));
+        assertFalse(table.isCompatible("21.0.5+11", null));
+        assertFalse(table.isCompatible("8.0.1", null));
+    }
+
+    @Test
+    void testFirstDecisionWins() {
+        JdkRangePolicy range = new JdkRangePolicy(null);
+        range.setMinimum("17");
+        PolicyTable table = table(List.of(new DenyListPolicy("21.0.1"), range));
+
+        assertFalse(table.isCompatible("21.0.1+12", null));
+        assertTrue(table.isCompatible("21.0.5+11", null));
+    }
+
+    @Test
+    void testInvalidPolicyIgnored() {
+        PolicyTable table = table(List.of(new DenyListPolicy("not a version")));
+
+        assertTrue(table.isCompatible("17.0.13+11", null));
+    }
+
+    @Test
+    void testEvaluatedOncePerVersion() {
+        Counting policy = new Counting(false);
+        PolicyTable table = table(List.of(policy));
+
+        for (int i = 0; i < 100; i++) {
+            table.isCompatible("21.0.5+11", node("agent-" + i, "linux"));
+            table.isCompatible("17.0.13+11", node("agent-" + i, "linux"));
+        }
+
+        assertEquals(2, policy.evaluations);
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void testEvaluatedOncePerLabelSet() {
+        Counting policy = new Counting(true);
+        PolicyTable table = table(List.of(policy));
+
+        for (int i = 0; i < 100; i++) {
+            table.isCompatible("21.0.5+11", node("linux-" + i, "linux docker"));
+            table.isCompatible("21.0.5+11", node("windows-" + i, "windows"));
+        }
+
+        // the own label of each agent does not count
+        assertEquals(2, policy.evaluations);
+    }
+
+    private static PolicyTable table(List<CompatibilityPolicy> policies) {
+        return new PolicyTable(
+                CONTROLLER, JVMVersionComparator.ComparisonMode.RUNTIME_GREATER_OR_EQUAL_MASTER_BYTECODE, policies);
+    }
+
+    private static Node node(String name, String labels) {
+        Node node = mock(Node.class);
+        Set<LabelAtom> assigned = new TreeSet<>();
+        for (String label : labels.split(" ")) {
+            assigned.add(new LabelAtom(label));
+        }
+        LabelAtom self = new LabelAtom(name);
+        assigned.add(self);
+        when(node.getAssignedLabels()).thenReturn(assigned);
+        when(node.getSelfLabel()).thenReturn(self);
+        return node;
+    }
+
+    private static final class Counting extends CompatibilityPolicy {
+
+        private final boolean usesLabels;
+
+        private int evaluations;
+
+        Counting(boolean usesLabels) {
+            this.usesLabels = usesLabels;
+        }
+
+        @NonNull
+        @Override
+        public Rule compile() {
+            return new Rule() {
+                @NonNull
+                @Override
+                public Decision decide(@NonNull Runtime.Version agentVersion, @NonNull Set<LabelAtom> labels) {
+                    evaluations++;
+                    return Decision.ABSTAIN;
+                }
+
+                @Override
+                public boolean usesLabels() {
+                    return usesLabels;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ProbeLatencyTest {
+
+    @Test
+    void testEmptyWindow() {
+        ProbeLatency.Stats stats = new ProbeLatency().getStats();
+        assertEquals(0, stats.getSamples());
+        assertEquals("N/A", new ProbeLatencyMonitor().toHtml(stats));
+        assertEquals("N/A", new ProbeLatencyMonitor().toHtml(null));
+    }
+
+    @Test
+    void testStats() {
+        ProbeLatency latency = new ProbeLatency();
+        for (int i = 1; i <= 10; i++) {
+            latency.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        ProbeLatency.Stats stats = latency.getStats();
+        assertEquals(10, stats.getSamples());
+        assertEquals(1.0, stats.getMin());
+        assertEquals(5.0, stats.getMedian());
+        assertEquals(10.0, stats.getP95());
+        assertEquals("1.0 / 5.0 / 10.0 ms", new ProbeLatencyMonitor().toHtml(stats));
+    }
+
+    @Test
+    void testWindowIsBounded() {
+        ProbeLatency latency = new ProbeLatency();
+        for (int i = 0; i < ProbeLatency.WINDOW; i++) {
+            latency.record(TimeUnit.SECONDS.toNanos(1));
+        }
+        for (int i = 0; i < ProbeLatency.WINDOW; i++) {
+            latency.record(TimeUnit.MILLISECONDS.toNanos(2));
+        }
+        ProbeLatency.Stats stats = latency.getStats();
+        assertEquals(ProbeLatency.WINDOW, stats.getSamples());
+        assertEquals(2.0, stats.getP95());
+    }
+}
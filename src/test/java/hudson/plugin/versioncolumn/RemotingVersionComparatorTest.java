@@ -0,0 +1,74 @@
+package hudson.plugin.versioncolumn;
+
+import static hudson.plugin.versioncolumn.RemotingVersionComparator.ComparisonMode.EXACT_MATCH;
+import static hudson.plugin.versioncolumn.RemotingVersionComparator.ComparisonMode.MINIMUM_VERSION;
+import static hudson.plugin.versioncolumn.RemotingVersionComparator.ComparisonMode.SAME_MAJOR;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class RemotingVersionComparatorTest {
+
+    static Object[] parameters() {
+        return new Object[][] {
+            {
+                "3283.v92c105e0f819", "3283.v92c105e0f819", EXACT_MATCH, true,
+            },
+            {
+                "3261.v9c670a_4748a_9", "3283.v92c105e0f819", EXACT_MATCH, false,
+            },
+            {
+                "3301.v4363ddcca_4e7", "3283.v92c105e0f819", EXACT_MATCH, false,
+            },
+            {
+                "3283.v92c105e0f819", "3283.v92c105e0f819", MINIMUM_VERSION, true,
+            },
+            {
+                "3301.v4363ddcca_4e7", "3283.v92c105e0f819", MINIMUM_VERSION, true,
+            },
+            {
+                "3261.v9c670a_4748a_9", "3283.v92c105e0f819", MINIMUM_VERSION, false,
+            },
+            {
+                "4.13.3", "4.13", MINIMUM_VERSION, true,
+            },
+            {
+                "4.13.3", "4.11", SAME_MAJOR, true,
+            },
+            {
+                "3.40", "4.13", SAME_MAJOR, false,
+            },
+            {
+                "3283.v92c105e0f819", "3283.v92c105e0f819", SAME_MAJOR, true,
+            },
+            {
+                "3301.v4363ddcca_4e7", "3283.v92c105e0f819", SAME_MAJOR, false,
+            },
+        };
+    }
+
+    @ParameterizedTest
+    @MethodSource("parameters")
+    void smokes(
+            String agentVersion,
+            String controllerVersion,
+            RemotingVersionComparator.ComparisonMode comparisonMode,
+            boolean isCompatible) {
+        assertEquals(
+                isCompatible,
+                new RemotingVersionComparator(controllerVersion, agentVersion, comparisonMode).isCompatible());
+        assertEquals(
+                !isCompatible,
+                new RemotingVersionComparator(controllerVersion, agentVersion, comparisonMode).isNotCompatible());
+    }
+
+    @Test
+    void parsedVersionsAreCached() {
+        assertSame(
+                RemotingVersionComparator.parse("3283.v92c105e0f819"),
+                RemotingVersionComparator.parse("3283.v92c105e0f819"));
+    }
+}
@@ -0,0 +1,47 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RuntimeProfileTest {
+
+    @Test
+    void testCollect() {
+        RuntimeProfile profile = RuntimeProfile.collect();
+
+        assertEquals(Runtime.getRuntime().availableProcessors(), profile.getAvailableProcessors());
+        assertTrue(profile.getMaxHeapBytes() > 0);
+        assertFalse(profile.getGarbageCollectors().isEmpty());
+        assertEquals(System.getProperty("os.arch"), profile.getArch());
+    }
+
+    @Test
+    void testProfileIsOptional() {
+        assertNull(new VersionsCallable(false).call().getProfile());
+
+        AgentVersions versions = new VersionsCallable(true).call();
+        assertEquals(Runtime.version().toString(), versions.getJvm());
+        assertNotNull(versions.getProfile());
+    }
+
+    @Test
+    void testCollector() {
+        assertEquals("G1", profile("G1 Young Generation", "G1 Old Generation").getCollector());
+        assertEquals("Parallel", profile("PS Scavenge", "PS MarkSweep").getCollector());
+        assertEquals("ZGC", profile("ZGC Cycles", "ZGC Pauses").getCollector());
+        assertEquals("Serial", profile("Copy", "MarkSweepCompact").getCollector());
+        assertEquals("Epsilon", profile("Epsilon").getCollector());
+        assertEquals("N/A", profile().getCollector());
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("8 CPUs, 4.0 GB heap, G1, amd64", profile("G1 Young Generation").toString());
+    }
+
+    private static RuntimeProfile profile(String... collectors) {
+        return new RuntimeProfile(4L << 30, 8, List.of(collectors), "amd64", "Linux");
+    }
+}
@@ -0,0 +1,152 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Computer;
+import hudson.model.ComputerSet;
+import hudson.remoting.VirtualChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+class SharedRegistryTest {
+
+    private static final String HOST = "build-01 4c4c4544 /usr/lib/jvm/java-21";
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testSharedBetweenControllers() {
+        SharedRegistry controllerA = new SharedRegistry(directory, 1000, clock::get);
+        SharedRegistry controllerB = new SharedRegistry(directory, 1000, clock::get);
+        Computer agentA = agent("build-01");
+        Computer agentB = agent("static-build-01");
+        // each controller identifies the host on the first probe after the agent connects
+        controllerB.store(agentB, new AgentVersions("21.0.4+7", "3301.v4363ddcca_4e7", null, HOST));
+        assertFalse(controllerB.needsIdentity(agentB));
+
+        clock.set(10);
+        controllerA.store(agentA, new AgentVersions("21.0.5+11", "3301.v4363ddcca_4e7", null, HOST));
+        clock.set(20);
+        SharedRegistry.Record record = controllerB.lookup(agentB);
+
+        assertNotNull(record);
+        assertEquals("21.0.5+11", record.getJvm());
+        assertEquals(10, record.getTimestamp());
+    }
+
+    @Test
+    void testStaleResultsAreNotShared() {
+        SharedRegistry registry = new SharedRegistry(directory, 1000, clock::get);
+        Computer agent = agent("build-01");
+        registry.store(agent, new AgentVersions("21.0.5+11", "3301.v4363ddcca_4e7", null, HOST));
+
+        clock.set(999);
+        assertNotNull(registry.lookup(agent));
+        clock.set(1000);
+        assertNull(registry.lookup(agent));
+    }
+
+    @Test
+    void testUnidentifiedHost() {
+        SharedRegistry registry = new SharedRegistry(directory, 1000, clock::get);
+        Computer agent = agent("build-01");
+
+        assertTrue(registry.needsIdentity(agent));
+        registry.store(agent, new AgentVersions("21.0.5+11", "3301.v4363ddcca_4e7", null));
+        assertNull(registry.lookup(agent));
+    }
+
+    @Test
+    void testIdentityIsForgottenOnReconnection() {
+        SharedRegistry registry = new SharedRegistry(directory, 1000, clock::get);
+        Computer agent = agent("build-01");
+        registry.store(agent, new AgentVersions("21.0.5+11", "3301.v4363ddcca_4e7", null, HOST));
+
+        VirtualChannel reconnected = mock(VirtualChannel.class);
+        when(agent.getChannel()).thenReturn(reconnected);
+
+        assertTrue(registry.needsIdentity(agent));
+        assertNull(registry.lookup(agent));
+    }
+
+    @Test
+    void testDisabled() {
+        Computer agent = agent("build-01");
+
+        assertFalse(SharedRegistry.NONE.needsIdentity(agent));
+        SharedRegistry.NONE.store(agent, new AgentVersions("21.0.5+11", "3301.v4363ddcca_4e7", null, HOST));
+        assertNull(SharedRegistry.NONE.lookup(agent));
+    }
+
+    @Test
+    void testSharedResultsAreNotProbed() throws Exception {
+        SharedRegistry registry = new SharedRegistry(directory, 60_000, clock::get);
+        Computer agent = agent("build-01");
+        registry.store(agent, new AgentVersions("21.0.5+11", "3301.v4363ddcca_4e7", null, HOST));
+        SharedVersionProbe shared = new SharedVersionProbe(1000, clock::get, registry);
+        clock.set(5000);
+
+        assertEquals(Map.of(agent, "21.0.5+11"), shared.probe(List.of(agent), 1000, AgentVersions::getJvm));
+        verify(agent.getChannel(), never()).callAsync(any());
+        assertEquals(0, shared.lastProbed(agent));
+    }
+
+    @Test
+    void testRemotingVersionIsNotShared() throws Exception {
+        SharedRegistry registry = new SharedRegistry(directory, 60_000, clock::get);
+        Computer agent = agent("build-01");
+        registry.store(agent, new AgentVersions("21.0.5+11", "3301.v4363ddcca_4e7", null, HOST));
+        SharedVersionProbe shared = new SharedVersionProbe(1000, clock::get, registry);
+        clock.set(5000);
+
+        assertEquals(Map.of(agent, "21.0.5+11"), shared.probe(List.of(agent), 1000, AgentVersions::getJvm));
+        verify(agent.getChannel(), never()).callAsync(any());
+        // the remoting version belongs to the agent process, so it is always probed
+        assertEquals(Map.of(), shared.probe(List.of(agent), 1000, AgentVersions::getRemoting));
+        verify(agent.getChannel()).callAsync(any());
+    }
+
+    @Test
+    @WithJenkins
+    void testAgentsNotProfiledYetAreProbed(JenkinsRule j) throws Exception {
+        ComputerSet.getMonitors().replace(new RuntimeProfileMonitor());
+        SharedRegistry registry = new SharedRegistry(directory, 60_000, clock::get);
+        Computer agent = agent("build-01");
+        registry.store(agent, new AgentVersions("21.0.5+11", "3301.v4363ddcca_4e7", null, HOST));
+        SharedVersionProbe shared = new SharedVersionProbe(1000, clock::get, registry);
+
+        shared.probe(List.of(agent), 1000, AgentVersions::getJvm);
+        verify(agent.getChannel()).callAsync(any());
+
+        RuntimeProfileMonitor.record(agent, RuntimeProfile.collect());
+        clock.set(5000);
+        assertEquals(Map.of(agent, "21.0.5+11"), shared.probe(List.of(agent), 1000, AgentVersions::getJvm));
+        verify(agent.getChannel()).callAsync(any());
+    }
+
+    @Test
+    void testHostIdentity() {
+        String identity = VersionsCallable.hostIdentity();
+        if (identity != null) {
+            assertTrue(identity.endsWith(" " + System.getProperty("java.home")));
+        }
+    }
+
+    private static Computer agent(String name) {
+        Computer computer = mock(Computer.class);
+        VirtualChannel channel = mock(VirtualChannel.class);
+        when(computer.getName()).thenReturn(name);
+        when(computer.getChannel()).thenReturn(channel);
+        return computer;
+    }
+}
@@ -0,0 +1,98 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Computer;
+import hudson.remoting.VirtualChannel;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+class SharedVersionProbeTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final SharedVersionProbe shared = new SharedVersionProbe(1000, clock::get);
+
+    @Test
+    void testFreshResultsAreShared() throws Exception {
+        Computer computer = agent("agent");
+        shared.record(computer, new AgentVersions("21.0.5+11", "3301.v4363ddcca_4e7", null));
+        clock.set(999);
+
+        assertEquals(
+                Map.of(computer, "21.0.5+11"), shared.probe(List.of(computer), 1000, AgentVersions::getJvm));
+        assertEquals(
+                Map.of(computer, "3301.v4363ddcca_4e7"),
+                shared.probe(List.of(computer), 1000, AgentVersions::getRemoting));
+        verify(computer, never()).getChannel();
+    }
+
+    @Test
+    void testStaleResultsAreProbedAgain() throws Exception {
+        Computer computer = agent("agent");
+        shared.record(computer, new AgentVersions("21.0.5+11", "3301.v4363ddcca_4e7", null));
+        clock.set(1000);
+
+        // the agent is disconnected, so it cannot answer the new probe
+        assertTrue(shared.probe(List.of(computer), 1000, AgentVersions::getJvm).isEmpty());
+        verify(computer).getChannel();
+    }
+
+    @Test
+    @WithJenkins
+    void testConcurrentCallersDoNotWaitForEachOther(JenkinsRule j) throws Exception {
+        AgentVersions versions = new AgentVersions("21.0.5+11", "3301.v4363ddcca_4e7", null);
+        CompletableFuture<AgentVersions> slow = new CompletableFuture<>();
+        Computer slowAgent = connected("slow", slow);
+        Computer fastAgent = connected("fast", CompletableFuture.completedFuture(versions));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map<Computer, String>> first =
+                    executor.submit(() -> shared.probe(List.of(slowAgent), 30_000, AgentVersions::getJvm));
+            verify(slowAgent.getChannel(), timeout(30_000)).callAsync(any());
+
+            // another agent is probed while the first caller still waits for the slow one
+            assertEquals(
+                    Map.of(fastAgent, "21.0.5+11"),
+                    assertTimeoutPreemptively(
+                            Duration.ofSeconds(30),
+                            () -> shared.probe(List.of(fastAgent), 30_000, AgentVersions::getJvm)));
+
+            // a caller needing the slow agent joins the probe in flight instead of sending another one
+            Future<Map<Computer, String>> second =
+                    executor.submit(() -> shared.probe(List.of(slowAgent), 30_000, AgentVersions::getRemoting));
+            slow.complete(versions);
+
+            assertEquals(Map.of(slowAgent, "21.0.5+11"), first.get(30, TimeUnit.SECONDS));
+            assertEquals(Map.of(slowAgent, "3301.v4363ddcca_4e7"), second.get(30, TimeUnit.SECONDS));
+            verify(slowAgent.getChannel()).callAsync(any());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Computer connected(String name, CompletableFuture<AgentVersions> answer) throws Exception {
+        Computer computer = agent(name);
+        VirtualChannel channel = mock(VirtualChannel.class);
+        doReturn(answer).when(channel).callAsync(any());
+        when(computer.getChannel()).thenReturn(channel);
+        return computer;
+    }
+
+    private static Computer agent(String name) {
+        Computer computer = mock(Computer.class);
+        when(computer.getName()).thenReturn(name);
+        return computer;
+    }
+}
@@ -0,0 +1,69 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Computer;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class UpgradeSimulationTest {
+
+    @Test
+    void testSimulationAgainstNewerController() {
+        Computer jdk17 = agent("jdk17");
+        Computer jdk21 = agent("jdk21");
+        Computer unknown = agent("unknown");
+        AgentCache<String> jvmVersions = new AgentCache<>();
+        jvmVersions.put(jdk17, "17.0.13+11");
+        jvmVersions.put(jdk21, "21.0.4+7");
+        AgentCache<String> remotingVersions = new AgentCache<>();
+        remotingVersions.put(jdk17, "3283.v92c105e0f819");
+        remotingVersions.put(jdk21, "3301.v4363ddcca_4e7");
+
+        UpgradeSimulation simulation = UpgradeSimulation.run(
+                Runtime.Version.parse("21.0.5+11"),
+                "3301.v4363ddcca_4e7",
+                new Computer[] {jdk17, jdk21, unknown},
+                jvmVersions,
+                remotingVersions);
+
+        assertEquals(3, simulation.getAgents());
+        assertEquals(
+                List.of("jdk17"),
+                simulation
+                        .getJvmOffline()
+                        .get(JVMVersionComparator.ComparisonMode.RUNTIME_GREATER_OR_EQUAL_MASTER_BYTECODE));
+        assertEquals(
+                List.of("jdk17", "jdk21"),
+                simulation.getJvmOffline().get(JVMVersionComparator.ComparisonMode.MAJOR_MINOR_MATCH));
+        assertEquals(
+                List.of("jdk17", "jdk21"),
+                simulation.getJvmOffline().get(JVMVersionComparator.ComparisonMode.EXACT_MATCH));
+        assertEquals(
+                List.of("jdk17"),
+                simulation.getRemotingOffline().get(RemotingVersionComparator.ComparisonMode.EXACT_MATCH));
+        assertEquals(
+                List.of("jdk17"),
+                simulation.getRemotingOffline().get(RemotingVersionComparator.ComparisonMode.MINIMUM_VERSION));
+        assertEquals(
+                List.of("jdk17"),
+                simulation.getRemotingOffline().get(RemotingVersionComparator.ComparisonMode.SAME_MAJOR));
+        assertEquals("21.0.5+11", simulation.toJSON().getString("controllerVersion"));
+    }
+
+    @Test
+    void testSimulationWithoutRemotingVersion() {
+        UpgradeSimulation simulation = UpgradeSimulation.run(
+                Runtime.version(), null, new Computer[0], new AgentCache<>(), new AgentCache<>());
+        assertEquals(0, simulation.getAgents());
+        assertTrue(simulation.getRemotingOffline().isEmpty());
+        assertFalse(simulation.toJSON().has("remotingOffline"));
+    }
+
+    private static Computer agent(String name) {
+        Computer computer = mock(Computer.class);
+        when(computer.getName()).thenReturn(name);
+        return computer;
+    }
+}
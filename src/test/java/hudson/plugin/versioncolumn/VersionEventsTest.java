@@ -0,0 +1,114 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import net.sf.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+import org.kohsuke.stapler.StaplerResponse2;
+
+class VersionEventsTest {
+
+    @Test
+    void testSinceReturnsNewerEventsOldestFirst() {
+        VersionEvents bus = new VersionEvents(8);
+        for (int i = 0; i < 3; i++) {
+            bus.publish(event("agent-" + i));
+        }
+
+        List<VersionEvents.Event> events = bus.since(1);
+        assertEquals(2, events.size());
+        assertEquals(2, events.get(0).getId());
+        assertEquals("agent-2", events.get(1).getNode());
+        assertTrue(bus.since(3).isEmpty());
+    }
+
+    @Test
+    void testOldestEventsAreDropped() {
+        VersionEvents bus = new VersionEvents(4);
+        for (int i = 0; i < 10; i++) {
+            bus.publish(event("agent-" + i));
+        }
+
+        List<VersionEvents.Event> events = bus.since(0);
+        assertEquals(4, events.size());
+        assertEquals(7, events.get(0).getId());
+        assertEquals(10, bus.getLast());
+    }
+
+    @Test
+    void testAwaitTimesOut() throws Exception {
+        VersionEvents bus = new VersionEvents(4);
+        assertTrue(bus.await(0, 10).isEmpty());
+    }
+
+    @Test
+    void testAwaitIsWokenUpByPublish() throws Exception {
+        VersionEvents bus = new VersionEvents(4);
+        CompletableFuture<List<VersionEvents.Event>> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return bus.await(0, TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        bus.publish(event("agent"));
+
+        assertEquals("agent", waiting.get(30, TimeUnit.SECONDS).get(0).getNode());
+    }
+
+    @Test
+    void testToJSON() {
+        VersionEvents bus = new VersionEvents(4);
+        VersionEvents.Event event =
+                new VersionEvents.Event(VersionEvents.Type.VERDICT, "jvmVersion", "agent", "17.0.2+8", false);
+        bus.publish(event);
+
+        JSONObject json = event.toJSON();
+        assertEquals(1, json.getLong("id"));
+        assertEquals("verdict", json.getString("type"));
+        assertEquals("17.0.2+8", json.getString("version"));
+        assertFalse(json.getBoolean("compatible"));
+    }
+
+    @Test
+    @WithJenkins
+    void testWaitersAreCapped(JenkinsRule j) throws Exception {
+        StaplerResponse2 rsp = mock(StaplerResponse2.class);
+
+        new VersionEventsAction(0).doPoll(0, 60, rsp);
+
+        verify(rsp).setHeader("Retry-After", String.valueOf(VersionEventsAction.RETRY_SECONDS));
+    }
+
+    @Test
+    void testResumeFrom() {
+        assertEquals(12, VersionEventsAction.resumeFrom("12", "3", 42));
+        assertEquals(3, VersionEventsAction.resumeFrom(null, "3", 42));
+        assertEquals(42, VersionEventsAction.resumeFrom("garbage", null, 42));
+    }
+
+    @Test
+    void testResumeAfterRestart() {
+        VersionEvents bus = new VersionEvents(4);
+        bus.publish(event("agent-1"));
+        bus.publish(event("agent-2"));
+
+        // the client received event 57 before the controller restarted
+        long from = VersionEventsAction.resumeFrom("57", null, bus.getLast());
+        assertEquals(0, from);
+        assertEquals(2, bus.since(from).size());
+        assertEquals(0, VersionEventsAction.sameRun(57, bus.getLast()));
+        assertEquals(1, VersionEventsAction.sameRun(1, bus.getLast()));
+    }
+
+    private static VersionEvents.Event event(String node) {
+        return new VersionEvents.Event(
+                VersionEvents.Type.VERSION, "remotingVersion", node, "3301.v4363ddcca_4e7", null);
+    }
+}
@@ -0,0 +1,134 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class VersionHistoryTest {
+
+    @TempDir
+    private File tmp;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testReadRangeOfMonitor() throws Exception {
+        VersionHistory history = new VersionHistory(new File(tmp, "history.bin"), 64, clock::get);
+        for (int i = 0; i < 10; i++) {
+            clock.set(i * 1000L);
+            history.append(MonitoringEvents.JVM, Map.of("17.0.13+11", 10 - i, "21.0.5+11", i));
+            history.append(MonitoringEvents.REMOTING, Map.of("3301.v4363ddcca_4e7", 10));
+        }
+
+        List<VersionHistory.Record> records = history.read(MonitoringEvents.JVM, 2000, 4000, 0);
+        assertEquals(3, records.size());
+        assertEquals(2000, records.get(0).getTimestamp());
+        assertEquals(Map.of("17.0.13+11", 8, "21.0.5+11", 2), records.get(0).getCounts());
+        assertEquals(4000, records.get(2).getTimestamp());
+    }
+
+    @Test
+    void testOldestRecordsAreOverwritten() throws Exception {
+        VersionHistory history = new VersionHistory(new File(tmp, "history.bin"), 4, clock::get);
+        for (int i = 0; i < 10; i++) {
+            clock.set(i * 1000L);
+            history.append(MonitoringEvents.JVM, Map.of("21.0.5+11", i));
+        }
+
+        List<VersionHistory.Record> records = history.read(MonitoringEvents.JVM, 0, Long.MAX_VALUE - 1, 0);
+        assertEquals(4, records.size());
+        assertEquals(6000, records.get(0).getTimestamp());
+        assertEquals(9, records.get(3).getCounts().get("21.0.5+11"));
+    }
+
+    @Test
+    void testHistoryIsPersisted() throws Exception {
+        File file = new File(tmp, "history.bin");
+        clock.set(1000);
+        new VersionHistory(file, 8, clock::get).append(MonitoringEvents.REMOTING, Map.of("3301.v4363ddcca_4e7", 3));
+
+        VersionHistory reopened = new VersionHistory(file, 8, clock::get);
+        assertEquals(1, reopened.getCount());
+        assertEquals(
+                3, reopened.read(MonitoringEvents.REMOTING, 0, 2000, 0).get(0).getCounts().get("3301.v4363ddcca_4e7"));
+    }
+
+    @Test
+    void testVersionsSharingTheirFirstBytesAreMerged() throws Exception {
+        VersionHistory history = new VersionHistory(new File(tmp, "history.bin"), 8, clock::get);
+        String prefix = "x".repeat(VersionHistory.VERSION_BYTES);
+        history.append(MonitoringEvents.JVM, Map.of(prefix + "-a", 2, prefix + "-b", 3, "21.0.5+11", 1));
+
+        Map<String, Integer> counts = history.read(MonitoringEvents.JVM, 0, 1000, 0).get(0).getCounts();
+        assertEquals(Map.of(prefix, 5, "21.0.5+11", 1), counts);
+    }
+
+    @Test
+    void testFileWithAnotherCapacityIsReset() throws Exception {
+        File file = new File(tmp, "history.bin");
+        clock.set(1000);
+        new VersionHistory(file, 8, clock::get).append(MonitoringEvents.JVM, Map.of("21.0.5+11", 1));
+
+        assertEquals(0, new VersionHistory(file, 16, clock::get).getCount());
+    }
+
+    @Test
+    void testLeastCommonVersionsAreCountedAsOthers() throws Exception {
+        VersionHistory history = new VersionHistory(new File(tmp, "history.bin"), 8, clock::get);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < VersionHistory.MAX_VERSIONS + 2; i++) {
+            counts.put("17.0." + i, i + 1);
+        }
+        clock.set(1000);
+        history.append(MonitoringEvents.JVM, counts);
+
+        VersionHistory.Record record = history.read(MonitoringEvents.JVM, 0, 2000, 0).get(0);
+        assertEquals(VersionHistory.MAX_VERSIONS, record.getCounts().size());
+        assertEquals(1 + 2, record.getOthers());
+        assertFalse(record.getCounts().containsKey("17.0.0"));
+    }
+
+    @Test
+    void testReadIsDownsampled() throws Exception {
+        VersionHistory history = new VersionHistory(new File(tmp, "history.bin"), 128, clock::get);
+        for (int i = 0; i < 100; i++) {
+            clock.set(i);
+            history.append(MonitoringEvents.JVM, Map.of("21.0.5+11", 1));
+        }
+
+        assertEquals(10, history.read(MonitoringEvents.JVM, 0, 99, 10).size());
+    }
+
+    @Test
+    void testDownsamplingKeepsEachMonitor() throws Exception {
+        VersionHistory history = new VersionHistory(new File(tmp, "history.bin"), 128, clock::get);
+        for (int i = 0; i < 20; i++) {
+            clock.set(i);
+            history.append(MonitoringEvents.JVM, Map.of("21.0.5+11", 1));
+            history.append(MonitoringEvents.REMOTING, Map.of("3301.v4363ddcca_4e7", 1));
+        }
+
+        assertEquals(10, history.read(MonitoringEvents.JVM, 0, 19, 10).size());
+        assertEquals(10, history.read(MonitoringEvents.REMOTING, 0, 19, 10).size());
+    }
+
+    @Test
+    void testRecordsStayChronological() throws Exception {
+        VersionHistory history = new VersionHistory(new File(tmp, "history.bin"), 8, clock::get);
+        clock.set(2000);
+        history.append(MonitoringEvents.JVM, Map.of("21.0.5+11", 1));
+        // the clock is set back
+        clock.set(1000);
+        history.append(MonitoringEvents.JVM, Map.of("21.0.5+11", 2));
+
+        List<VersionHistory.Record> records = history.read(MonitoringEvents.JVM, 2000, 2000, 0);
+        assertEquals(2, records.size());
+        assertEquals(2, records.get(1).getCounts().get("21.0.5+11"));
+    }
+}
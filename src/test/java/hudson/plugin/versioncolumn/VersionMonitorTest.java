@@ -10,7 +10,9 @@ import hudson.remoting.Launcher;
 import hudson.remoting.VirtualChannel;
 import hudson.slaves.DumbSlave;
 import hudson.slaves.OfflineCause;
+import hudson.util.ListBoxModel;
 import java.io.IOException;
+import jenkins.model.Jenkins;
 import jenkins.security.MasterToSlaveCallable;
 import jenkins.slaves.RemotingVersionInfo;
 import org.junit.jupiter.api.BeforeAll;
@@ -59,6 +61,36 @@ class VersionMonitorTest {
         assertEquals(Util.wrapToErrorSpan(version), versionMonitor.toHtml(version));
     }
 
+    @Test
+    void testToHtml_MinimumVersion() {
+        versionMonitor.setComparisonMode(RemotingVersionComparator.ComparisonMode.MINIMUM_VERSION);
+        String older = RemotingVersionInfo.getMinimumSupportedVersion().toString();
+        assertEquals(Util.wrapToErrorSpan(older), versionMonitor.toHtml(older));
+        assertEquals(Launcher.VERSION, versionMonitor.toHtml(Launcher.VERSION));
+        assertEquals("999999.v1", versionMonitor.toHtml("999999.v1"));
+    }
+
+    @Test
+    void testComparisonModeDefaultsToExactMatch() {
+        assertEquals(RemotingVersionComparator.ComparisonMode.EXACT_MATCH, versionMonitor.getComparisonMode());
+        VersionMonitor deserialized = (VersionMonitor)
+                Jenkins.XSTREAM2.fromXML("<hudson.plugin.versioncolumn.VersionMonitor>"
+                        + "<ignored>false</ignored>"
+                        + "</hudson.plugin.versioncolumn.VersionMonitor>");
+        assertEquals(RemotingVersionComparator.ComparisonMode.EXACT_MATCH, deserialized.getComparisonMode());
+        assertEquals(Launcher.VERSION, deserialized.toHtml(Launcher.VERSION));
+    }
+
+    @Test
+    void testDoFillComparisonModeItems() {
+        ListBoxModel items = descriptor.doFillComparisonModeItems();
+        assertEquals(RemotingVersionComparator.ComparisonMode.values().length, items.size());
+        for (RemotingVersionComparator.ComparisonMode mode : RemotingVersionComparator.ComparisonMode.values()) {
+            assertEquals(mode.getDescription(), items.get(mode.ordinal()).name);
+            assertEquals(mode.name(), items.get(mode.ordinal()).value);
+        }
+    }
+
     @Test
     void testDescriptorImplConstructor() {
         VersionMonitor.DescriptorImpl descriptorImpl = new VersionMonitor.DescriptorImpl();
@@ -96,6 +128,7 @@ class VersionMonitorTest {
         String differentVersion = "different-version";
 
         when(computer.getChannel()).thenReturn(channel);
+        when(computer.getName()).thenReturn("test-computer");
         when(channel.call(ArgumentMatchers.<MasterToSlaveCallable<String, IOException>>any()))
                 .thenReturn(differentVersion);
         when(computer.isOffline()).thenReturn(false);
@@ -156,6 +189,7 @@ class VersionMonitorTest {
         VersionMonitor.RemotingVersionMismatchCause cause = new VersionMonitor.RemotingVersionMismatchCause("Mismatch");
 
         when(computer.getChannel()).thenReturn(channel);
+        when(computer.getName()).thenReturn("test-computer");
         when(channel.call(ArgumentMatchers.<MasterToSlaveCallable<String, IOException>>any()))
                 .thenReturn(Launcher.VERSION);
         when(computer.isOffline()).thenReturn(true);
@@ -174,6 +208,7 @@ class VersionMonitorTest {
         OfflineCause otherCause = mock(OfflineCause.class);
 
         when(computer.getChannel()).thenReturn(channel);
+        when(computer.getName()).thenReturn("test-computer");
         when(channel.call(ArgumentMatchers.<MasterToSlaveCallable<String, IOException>>any()))
                 .thenReturn(Launcher.VERSION);
         when(computer.isOffline()).thenReturn(true);
@@ -0,0 +1,134 @@
+package hudson.plugin.versioncolumn;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.remoting.VirtualChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class VersionSamplingTest {
+
+    @Test
+    void testPlanDefersAllButSamples() {
+        List<Computer> computers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            computers.add(agent("linux-" + i, "linux docker"));
+        }
+        computers.add(agent("windows-0", "windows"));
+        VersionSampling sampling = new VersionSampling(VersionSampling.GroupKey.LABELS);
+        sampling.setSamplesPerGroup(2);
+
+        VersionSampling.Plan plan = sampling.plan(computers, 0);
+
+        assertEquals(8, plan.getDeferredCount());
+        // a group smaller than the number of samples is always probed
+        assertFalse(plan.isDeferred(computers.get(10)));
+    }
+
+    @Test
+    void testSamplesRotate() {
+        List<Computer> computers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            computers.add(agent("agent-" + i, "linux"));
+        }
+        VersionSampling sampling = new VersionSampling(VersionSampling.GroupKey.LABELS);
+
+        Set<Computer> probed = new HashSet<>();
+        for (int cycle = 0; cycle < 4; cycle++) {
+            VersionSampling.Plan plan = sampling.plan(computers, cycle);
+            for (Computer c : computers) {
+                if (!plan.isDeferred(c)) {
+                    probed.add(c);
+                }
+            }
+        }
+        assertEquals(new HashSet<>(computers), probed);
+    }
+
+    @Test
+    void testInferFromAgreeingSamples() {
+        List<Computer> computers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            computers.add(agent("agent-" + i, "linux"));
+        }
+        VersionSampling.Plan plan = new VersionSampling(VersionSampling.GroupKey.LABELS).plan(computers, 0);
+        Map<Computer, String> results = new HashMap<>();
+        for (Computer c : computers) {
+            results.put(c, plan.isDeferred(c) ? null : "21.0.5+11");
+        }
+
+        assertTrue(plan.infer(results, c -> null).isEmpty());
+        for (Computer c : computers) {
+            assertEquals("21.0.5+11", results.get(c));
+        }
+    }
+
+    @Test
+    void testDivergingSamplesForceFullProbe() {
+        List<Computer> computers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            computers.add(agent("agent-" + i, "linux"));
+        }
+        VersionSampling sampling = new VersionSampling(VersionSampling.GroupKey.LABELS);
+        sampling.setSamplesPerGroup(2);
+        VersionSampling.Plan plan = sampling.plan(computers, 0);
+        Map<Computer, String> results = new HashMap<>();
+        String version = "17.0.13+11";
+        for (Computer c : computers) {
+            if (!plan.isDeferred(c)) {
+                results.put(c, version);
+                version = "21.0.5+11";
+            }
+        }
+
+        assertEquals(3, plan.infer(results, c -> null).size());
+    }
+
+    @Test
+    void testChangedSampleForcesFullProbe() {
+        List<Computer> computers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            computers.add(agent("agent-" + i, "linux"));
+        }
+        VersionSampling.Plan plan = new VersionSampling(VersionSampling.GroupKey.LABELS).plan(computers, 1);
+        Map<Computer, String> previous = new HashMap<>();
+        Map<Computer, String> results = new HashMap<>();
+        for (Computer c : computers) {
+            previous.put(c, "21.0.4+7");
+            // the only sample of the group was upgraded since the previous cycle
+            results.put(c, plan.isDeferred(c) ? null : "21.0.5+11");
+        }
+
+        List<Computer> toProbe = plan.infer(results, previous::get);
+
+        assertEquals(3, toProbe.size());
+        for (Computer c : toProbe) {
+            assertTrue(plan.isDeferred(c));
+            assertNull(results.get(c));
+        }
+    }
+
+    @Test
+    void testGroupByNodePropertyWithoutVariable() {
+        VersionSampling sampling = new VersionSampling(VersionSampling.GroupKey.NODE_PROPERTY);
+        assertNull(sampling.groupOf(agent("agent", "linux")));
+    }
+
+    private static Computer agent(String name, String labels) {
+        Computer computer = mock(Computer.class);
+        Node node = mock(Node.class);
+        when(node.getLabelString()).thenReturn(labels);
+        when(computer.getName()).thenReturn(name);
+        when(computer.getNode()).thenReturn(node);
+        when(computer.getChannel()).thenReturn(mock(VirtualChannel.class));
+        return computer;
+    }
+}